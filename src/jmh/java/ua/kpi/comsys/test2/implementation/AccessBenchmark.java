@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2014, NTUU KPI, Computer systems department and/or its affiliates. All rights reserved.
+ * NTUU KPI PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ */
+package ua.kpi.comsys.test2.implementation;
+
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full passes over the list through <tt>get</tt>, <tt>set</tt>, the
+ * iterator, the list iterator and digit streams.
+ *
+ * @author Sukhoruchkin Hlib IA-34
+ * 19th variant
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessBenchmark {
+    @Param({"100", "1000", "10000", "100000", "1000000", "10000000"})
+    int digits;
+
+    NumberListImpl list;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list = BenchmarkData.hexList(digits, 1);
+    }
+
+    @Benchmark
+    public int get() {
+        int sum = 0;
+        for (int i = 0; i < digits; i++) {
+            sum += list.get(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void set() {
+        for (int i = 0; i < digits; i++) {
+            list.set(i, (byte) (i & 15));
+        }
+    }
+
+    @Benchmark
+    public int iterator() {
+        int sum = 0;
+        Iterator<Byte> it = list.iterator();
+        while (it.hasNext()) {
+            sum += it.next();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int listIterator() {
+        int sum = 0;
+        ListIterator<Byte> it = list.listIterator();
+        while (it.hasNext()) {
+            sum += it.next();
+        }
+        while (it.hasPrevious()) {
+            sum += it.previous();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long digitStream() {
+        return list.digitStream().asLongStream().sum();
+    }
+
+    @Benchmark
+    public long parallelDigitStream() {
+        return list.digitStream().parallel().asLongStream().sum();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014, NTUU KPI, Computer systems department and/or its affiliates. All rights reserved.
+ * NTUU KPI PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ */
+package ua.kpi.comsys.test2.implementation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lists that are rebuilt over and over, with and without the node pool.
+ * Run with <tt>-prof gc</tt> to see the allocation rate.
+ *
+ * @author Sukhoruchkin Hlib IA-34
+ * 19th variant
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocationBenchmark {
+    @Param({"1000", "100000"})
+    int digits;
+
+    /**
+     * Free nodes per thread, 0 for no pool.
+     */
+    @Param({"0", "1024"})
+    int poolCapacity;
+
+    NumberListImpl list;
+    NumberListImpl target;
+    List<Byte> digitList;
+    List<Byte> removed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        NumberListImpl.setNodePoolCapacity(poolCapacity);
+        list = BenchmarkData.hexList(digits, 1);
+        target = new NumberListImpl();
+        digitList = new ArrayList<>(list);
+        removed = Arrays.asList((byte) 0, (byte) 5, (byte) 10);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        NumberListImpl.setNodePoolCapacity(0);
+    }
+
+    @Benchmark
+    public NumberListImpl clearAndRefill() {
+        target.clear();
+        target.addAll(digitList);
+        return target;
+    }
+
+    @Benchmark
+    public NumberListImpl refillAndRemoveAll() {
+        target.clear();
+        target.addAll(list);
+        target.removeAll(removed);
+        return target;
+    }
+
+    @Benchmark
+    public int changeScaleAndDiscard() {
+        NumberListImpl binary = list.changeScale();
+        int size = binary.size();
+        binary.clear();
+        return size;
+    }
+}
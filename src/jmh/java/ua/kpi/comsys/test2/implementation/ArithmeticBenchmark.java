@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2014, NTUU KPI, Computer systems department and/or its affiliates. All rights reserved.
+ * NTUU KPI PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ */
+package ua.kpi.comsys.test2.implementation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Arithmetic on the limbs of the lists against the same operation done
+ * by converting both lists to <tt>BigInteger</tt> and the result back.
+ * The divisor has half as many digits as the dividend.
+ *
+ * @author Sukhoruchkin Hlib IA-34
+ * 19th variant
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArithmeticBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    int digits;
+
+    NumberListImpl list;
+    NumberListImpl other;
+    NumberListImpl divisor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list = BenchmarkData.hexList(digits, 1);
+        other = BenchmarkData.hexList(digits, 2);
+        divisor = BenchmarkData.hexList(digits / 2, 3);
+        // the round trip must not be served from the cached values
+        NumberListImpl.setCacheLimit(0);
+    }
+
+    @Benchmark
+    public NumberListImpl sum() {
+        return list.sum(other);
+    }
+
+    @Benchmark
+    public NumberListImpl sumByBigInteger() {
+        return new NumberListImpl(list.toBigInteger().add(other.toBigInteger()), 16);
+    }
+
+    @Benchmark
+    public NumberListImpl subtract() {
+        return list.subtract(divisor);
+    }
+
+    @Benchmark
+    public NumberListImpl subtractByBigInteger() {
+        return new NumberListImpl(list.toBigInteger().subtract(divisor.toBigInteger()), 16);
+    }
+
+    @Benchmark
+    public NumberListImpl multiply() {
+        return list.multiply(other);
+    }
+
+    @Benchmark
+    public NumberListImpl multiplyByBigInteger() {
+        return new NumberListImpl(list.toBigInteger().multiply(other.toBigInteger()), 16);
+    }
+
+    @Benchmark
+    public NumberListImpl divide() {
+        return list.divide(divisor);
+    }
+
+    @Benchmark
+    public NumberListImpl divideByBigInteger() {
+        return new NumberListImpl(list.toBigInteger().divide(divisor.toBigInteger()), 16);
+    }
+
+    @Benchmark
+    public NumberListImpl mod() {
+        return list.mod(divisor);
+    }
+
+    @Benchmark
+    public NumberListImpl modByBigInteger() {
+        return new NumberListImpl(list.toBigInteger().mod(divisor.toBigInteger()), 16);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2014, NTUU KPI, Computer systems department and/or its affiliates. All rights reserved.
+ * NTUU KPI PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ */
+package ua.kpi.comsys.test2.implementation;
+
+import java.util.Random;
+
+/**
+ * Random operands for benchmarks. The seed depends only on the size,
+ * so every run measures the same numbers.
+ *
+ * @author Sukhoruchkin Hlib IA-34
+ * 19th variant
+ */
+final class BenchmarkData {
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return list of <tt>digits</tt> random hex digits without leading zero.
+     */
+    static NumberListImpl hexList(int digits, long seed) {
+        Random random = new Random(seed * 31 + digits);
+        NumberListImpl list = new NumberListImpl();
+        list.add((byte) (1 + random.nextInt(15)));
+        for (int i = 1; i < digits; i++) {
+            list.add((byte) random.nextInt(16));
+        }
+        return list;
+    }
+
+    /**
+     * @return <tt>digits</tt> random decimal digits without leading zero.
+     */
+    static String decimal(int digits) {
+        Random random = new Random(digits);
+        StringBuilder sb = new StringBuilder(digits);
+        sb.append((char) ('1' + random.nextInt(9)));
+        for (int i = 1; i < digits; i++) {
+            sb.append((char) ('0' + random.nextInt(10)));
+        }
+        return sb.toString();
+    }
+}
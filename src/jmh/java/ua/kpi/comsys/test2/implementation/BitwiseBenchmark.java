@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2014, NTUU KPI, Computer systems department and/or its affiliates. All rights reserved.
+ * NTUU KPI PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ */
+package ua.kpi.comsys.test2.implementation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bitwise operations: the lane loops alone, vector against scalar, and
+ * whole list operations against the <tt>BigInteger</tt> round trip, and
+ * the in-place AND that reuses the nodes of the result.
+ * <tt>digits</tt> is the number of hex digits of each operand.
+ *
+ * @author Sukhoruchkin Hlib IA-34
+ * 19th variant
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class BitwiseBenchmark {
+    @Param({"1000", "100000", "10000000"})
+    int digits;
+
+    NumberListImpl list;
+    NumberListImpl other;
+    NumberListImpl accumulator;
+    NumberListImpl dest;
+    long[] lanes;
+    long[] otherLanes;
+    long[] resultLanes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list = BenchmarkData.hexList(digits, 1);
+        other = BenchmarkData.hexList(digits, 2);
+        accumulator = list.and(other);
+        dest = list.and(other);
+        Random random = new Random(digits);
+        lanes = random.longs(digits / 16).toArray();
+        otherLanes = random.longs(digits / 16).toArray();
+        resultLanes = new long[digits / 16];
+        NumberListImpl.setCacheLimit(0);
+    }
+
+    @Benchmark
+    public long[] vectorLanes() {
+        VectorLanes.apply(BitwiseLanes.Operation.AND, lanes, otherLanes, resultLanes, resultLanes.length);
+        return resultLanes;
+    }
+
+    @Benchmark
+    public long[] scalarLanes() {
+        BitwiseLanes.applyScalar(BitwiseLanes.Operation.AND, lanes, otherLanes, resultLanes, 0, resultLanes.length);
+        return resultLanes;
+    }
+
+    @Benchmark
+    public NumberListImpl and() {
+        return list.and(other);
+    }
+
+    /**
+     * After the first call the accumulator no longer changes, like a
+     * reduction that has settled, so this measures the steady state.
+     */
+    @Benchmark
+    public NumberListImpl andInPlace() {
+        accumulator.andInPlace(other);
+        return accumulator;
+    }
+
+    @Benchmark
+    public NumberListImpl andInto() {
+        NumberListImpl.andInto(list, other, dest);
+        return dest;
+    }
+
+    @Benchmark
+    public NumberListImpl xor() {
+        return list.xor(other);
+    }
+
+    @Benchmark
+    public NumberListImpl andByBigInteger() {
+        return new NumberListImpl(list.toBigInteger().and(other.toBigInteger()), 16);
+    }
+
+    @Benchmark
+    public NumberListImpl additionalOperation() {
+        return list.additionalOperation(other);
+    }
+}
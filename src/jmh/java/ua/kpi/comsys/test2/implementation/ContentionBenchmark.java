@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2014, NTUU KPI, Computer systems department and/or its affiliates. All rights reserved.
+ * NTUU KPI PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ */
+package ua.kpi.comsys.test2.implementation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Three readers against one writer calling <tt>set</tt>, on
+ * {@link ConcurrentNumberList} and on <tt>Collections.synchronizedList</tt>
+ * around {@link NumberListImpl}. In <tt>readWrite</tt> the readers call
+ * <tt>get</tt> and <tt>size</tt>, in <tt>scanWrite</tt> they call
+ * <tt>hashCode</tt>, which reads the whole list after every change.
+ *
+ * @author Sukhoruchkin Hlib IA-34
+ * 19th variant
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentionBenchmark {
+    @Param({"concurrent", "synchronized"})
+    String impl;
+
+    @Param({"1000", "100000"})
+    int digits;
+
+    List<Byte> list;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        NumberListImpl numbers = BenchmarkData.hexList(digits, 1);
+        list = impl.equals("concurrent") ? new ConcurrentNumberList(numbers) : Collections.synchronizedList(numbers);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public int read() {
+        int index = ThreadLocalRandom.current().nextInt(digits);
+        return list.get(index) + list.size();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public Byte write() {
+        return randomSet();
+    }
+
+    @Benchmark
+    @Group("scanWrite")
+    @GroupThreads(3)
+    public int scan() {
+        return list.hashCode();
+    }
+
+    @Benchmark
+    @Group("scanWrite")
+    @GroupThreads(1)
+    public Byte scanningWrite() {
+        return randomSet();
+    }
+
+    private Byte randomSet() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return list.set(random.nextInt(digits), (byte) random.nextInt(16));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2014, NTUU KPI, Computer systems department and/or its affiliates. All rights reserved.
+ * NTUU KPI PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ */
+package ua.kpi.comsys.test2.implementation;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversions between the list and decimal text: constructors,
+ * <tt>toDecimalString</tt>, <tt>saveList</tt> and <tt>changeScale</tt>,
+ * building the <tt>BigInteger</tt> value of a list, and the binary file
+ * format that needs no conversion.
+ * <tt>digits</tt> is the number of decimal digits for the constructors
+ * and the number of hex digits of the list for the rest.
+ *
+ * @author Sukhoruchkin Hlib IA-34
+ * 19th variant
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+    @Param({"100", "1000", "10000", "100000", "1000000", "10000000"})
+    int digits;
+
+    String decimal;
+    File decimalFile;
+    File outputFile;
+    File binaryFile;
+    NumberListImpl list;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        decimal = BenchmarkData.decimal(digits);
+        decimalFile = File.createTempFile("number", ".txt");
+        Files.write(decimalFile.toPath(), decimal.getBytes());
+        outputFile = File.createTempFile("saved", ".txt");
+        binaryFile = File.createTempFile("saved", ".bin");
+        list = BenchmarkData.hexList(digits, 1);
+        list.saveBinary(binaryFile.toPath());
+        // measure the conversions themselves, not the cached results
+        NumberListImpl.setCacheLimit(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(decimalFile.toPath());
+        Files.deleteIfExists(outputFile.toPath());
+        Files.deleteIfExists(binaryFile.toPath());
+    }
+
+    @Benchmark
+    public NumberListImpl stringConstructor() {
+        return new NumberListImpl(decimal);
+    }
+
+    @Benchmark
+    public NumberListImpl fileConstructor() {
+        return new NumberListImpl(decimalFile);
+    }
+
+    @Benchmark
+    public BigInteger toBigInteger() {
+        return list.toBigInteger();
+    }
+
+    @Benchmark
+    public String toDecimalString() {
+        return list.toDecimalString();
+    }
+
+    @Benchmark
+    public void saveList() {
+        list.saveList(outputFile);
+    }
+
+    @Benchmark
+    public void saveBinary() {
+        list.saveBinary(binaryFile.toPath());
+    }
+
+    @Benchmark
+    public NumberListImpl loadBinary() {
+        return NumberListImpl.loadBinary(binaryFile.toPath());
+    }
+
+    @Benchmark
+    public NumberListImpl changeScale() {
+        return list.changeScale();
+    }
+}
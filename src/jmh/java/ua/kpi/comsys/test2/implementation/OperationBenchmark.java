@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2014, NTUU KPI, Computer systems department and/or its affiliates. All rights reserved.
+ * NTUU KPI PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ */
+package ua.kpi.comsys.test2.implementation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sorting, cyclic shifts and the additional operation.<p>
+ * <p>
+ * Both sorts count digits and rewrite them in place, so their time per
+ * call should grow linearly with <tt>digits</tt>.
+ *
+ * @author Sukhoruchkin Hlib IA-34
+ * 19th variant
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OperationBenchmark {
+    @Param({"100", "1000", "10000", "100000", "1000000", "10000000"})
+    int digits;
+
+    NumberListImpl list;
+    NumberListImpl other;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list = BenchmarkData.hexList(digits, 1);
+        other = BenchmarkData.hexList(digits, 2);
+    }
+
+    @Benchmark
+    public void sortAscending() {
+        list.sortAscending();
+    }
+
+    @Benchmark
+    public void sortDescending() {
+        list.sortDescending();
+    }
+
+    @Benchmark
+    public void shiftLeft() {
+        list.shiftLeft();
+    }
+
+    @Benchmark
+    public void shiftRight() {
+        list.shiftRight();
+    }
+
+    @Benchmark
+    public NumberListImpl additionalOperation() {
+        return list.additionalOperation(other);
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2014, NTUU KPI, Computer systems department and/or its affiliates. All rights reserved.
+ * NTUU KPI PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ */
+package ua.kpi.comsys.test2.implementation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.PrimitiveIterator;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary file format of the digits of a list.<p>
+ * <p>
+ * A file starts with a big endian header of {@value #HEADER_SIZE} bytes:
+ * <pre>
+ *     int    magic        0x4B504E4C, "KPNL"
+ *     short  version      1
+ *     short  base         2 or 16
+ *     long   digit count
+ *     int    CRC32C of the body
+ * </pre>
+ * The body follows. It is the digits packed exactly as in the words of
+ * the ring nodes: little endian <tt>long</tt> words of
+ * <tt>64 / bitsPerDigit</tt> digits, the first digit in the lowest bits and
+ * the unused bits of the last word zero. Hex digits take 4 bits and binary
+ * digits 1 bit, so neither saving nor loading converts anything, and the
+ * size of a list is known from the header alone.
+ *
+ * @author Sukhoruchkin Hlib IA-34
+ * 19th variant
+ */
+final class BinaryFormat {
+    static final int MAGIC = 0x4B504E4C;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 20;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private BinaryFormat() {
+    }
+
+    static final class Header {
+        final int base;
+        final int size;
+        final int checksum;
+
+        Header(int base, int size, int checksum) {
+            this.base = base;
+            this.size = size;
+            this.checksum = checksum;
+        }
+
+        /**
+         * @return number of <tt>long</tt> words in the body.
+         */
+        long wordCount() {
+            int digitsPerWord = Long.SIZE / bitsPerDigit(base);
+            return ((long) size + digitsPerWord - 1) / digitsPerWord;
+        }
+    }
+
+    /**
+     * @return bits of a digit slot in a node word, the smallest power of two
+     *     that can hold <tt>base - 1</tt>.
+     */
+    static int bitsPerDigit(int base) {
+        int bits = 1;
+        while ((1 << bits) < base) {
+            bits <<= 1;
+        }
+        return bits;
+    }
+
+    static Header readHeader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readHeader(channel);
+        }
+    }
+
+    private static Header readHeader(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Truncated header");
+            }
+        }
+        buffer.flip();
+        int magic = buffer.getInt();
+        if (magic != MAGIC) {
+            throw new IOException("Not a binary number file, magic " + Integer.toHexString(magic));
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version " + version);
+        }
+        short base = buffer.getShort();
+        if (base != 2 && base != 16) {
+            throw new IOException("Unsupported base " + base);
+        }
+        long size = buffer.getLong();
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            throw new IOException("Wrong digit count " + size);
+        }
+        return new Header(base, (int) size, buffer.getInt());
+    }
+
+    /**
+     * Writes a file of <tt>size</tt> digits in the given base, whose body
+     * words are supplied by <tt>words</tt>. The header is written last,
+     * when the checksum is known.
+     */
+    static void write(Path path, int base, int size, PrimitiveIterator.OfLong words) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            CRC32C crc = new CRC32C();
+            long wordCount = new Header(base, size, 0).wordCount();
+            long position = HEADER_SIZE;
+            for (long i = 0; i < wordCount; i++) {
+                if (!buffer.hasRemaining()) {
+                    position += flush(channel, position, buffer, crc);
+                }
+                buffer.putLong(words.nextLong());
+            }
+            flush(channel, position, buffer, crc);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).putShort((short) base).putLong(size).putInt((int) crc.getValue());
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+    }
+
+    /**
+     * Writes the buffer at the given position and clears it.
+     *
+     * @return number of bytes written.
+     */
+    private static int flush(FileChannel channel, long position, ByteBuffer buffer, CRC32C crc) throws IOException {
+        buffer.flip();
+        int length = buffer.remaining();
+        crc.update(buffer);
+        buffer.rewind();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+        buffer.clear();
+        return length;
+    }
+
+    /**
+     * Reads the body of a file word by word in a single sequential pass.
+     * {@link #finish()} must be called after the last word to check the
+     * checksum.
+     */
+    static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final Header header;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C crc = new CRC32C();
+        private long remaining;
+
+        Reader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                header = readHeader(channel);
+                remaining = header.wordCount() * Long.BYTES;
+                if (channel.size() != HEADER_SIZE + remaining) {
+                    throw new IOException("Wrong file length " + channel.size() + " for " + header.size + " digits");
+                }
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            buffer.limit(0);
+        }
+
+        Header header() {
+            return header;
+        }
+
+        long nextWord() throws IOException {
+            if (!buffer.hasRemaining()) {
+                fill();
+            }
+            return buffer.getLong();
+        }
+
+        private void fill() throws IOException {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, remaining));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Truncated body");
+                }
+            }
+            buffer.flip();
+            remaining -= buffer.remaining();
+            crc.update(buffer);
+            buffer.rewind();
+        }
+
+        void finish() throws IOException {
+            if ((int) crc.getValue() != header.checksum) {
+                throw new IOException("Checksum mismatch");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
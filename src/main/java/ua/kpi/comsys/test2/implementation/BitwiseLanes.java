@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2014, NTUU KPI, Computer systems department and/or its affiliates. All rights reserved.
+ * NTUU KPI PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ */
+package ua.kpi.comsys.test2.implementation;
+
+/**
+ * Bitwise operations over numbers stored as 64-bit lanes, the least
+ * significant lane first.<p>
+ * <p>
+ * If the <tt>jdk.incubator.vector</tt> module is loaded (the build passes
+ * <tt>--add-modules jdk.incubator.vector</tt>), the lanes are processed by
+ * {@link VectorLanes} at the preferred vector width of the platform.
+ * Otherwise a plain loop is used, which the JIT compiler may still
+ * vectorize on its own.
+ *
+ * @author Sukhoruchkin Hlib IA-34
+ * 19th variant
+ */
+final class BitwiseLanes {
+    enum Operation {
+        AND, OR, XOR, AND_NOT
+    }
+
+    static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private BitwiseLanes() {
+    }
+
+    /**
+     * Stores <tt>a[i] op b[i]</tt> into <tt>dest[i]</tt> for every
+     * <tt>i < length</tt>. <tt>dest</tt> may be one of the operands.
+     */
+    static void apply(Operation op, long[] a, long[] b, long[] dest, int length) {
+        if (VECTORIZED) {
+            VectorLanes.apply(op, a, b, dest, length);
+        } else {
+            applyScalar(op, a, b, dest, 0, length);
+        }
+    }
+
+    /**
+     * Scalar version of {@link #apply}, starting at lane <tt>from</tt>.
+     * Every operation has its own loop, so that the loop body is a single
+     * instruction.
+     */
+    static void applyScalar(Operation op, long[] a, long[] b, long[] dest, int from, int length) {
+        switch (op) {
+            case AND:
+                for (int i = from; i < length; i++) {
+                    dest[i] = a[i] & b[i];
+                }
+                break;
+            case OR:
+                for (int i = from; i < length; i++) {
+                    dest[i] = a[i] | b[i];
+                }
+                break;
+            case XOR:
+                for (int i = from; i < length; i++) {
+                    dest[i] = a[i] ^ b[i];
+                }
+                break;
+            case AND_NOT:
+                for (int i = from; i < length; i++) {
+                    dest[i] = a[i] & ~b[i];
+                }
+                break;
+            default:
+                throw new AssertionError(op);
+        }
+    }
+}
@@ -0,0 +1,531 @@
+/*
+ * Copyright (c) 2014, NTUU KPI, Computer systems department and/or its affiliates. All rights reserved.
+ * NTUU KPI PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ */
+package ua.kpi.comsys.test2.implementation;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+
+import ua.kpi.comsys.test2.NumberList;
+
+/**
+ * Thread-safe <tt>NumberList</tt> backed by a {@link NumberListImpl}.<p>
+ * <p>
+ * Changes take the write lock of a <tt>StampedLock</tt>. <tt>size</tt> and
+ * <tt>get</tt> read the list optimistically and take the read lock only if
+ * a change got in the way, so they neither block each other nor short
+ * writers. Everything that reads the whole list works on a frozen
+ * {@link #snapshot() snapshot}: a private copy of the digits, made by the
+ * first reader after every change without locking and then shared by all
+ * readers until the next change. Writers only drop the copy, so a change
+ * stays as cheap as on a plain {@link NumberListImpl}.<p>
+ * <p>
+ * Iterators work on a snapshot too: they never throw
+ * <tt>ConcurrentModificationException</tt>, do not see later changes and
+ * do not support changes themselves. Sublists are views that pass every
+ * call to this list, one call at a time. Collections given to bulk changes
+ * are copied before the write lock is taken, so they may be views of this
+ * list.
+ *
+ * @author Sukhoruchkin Hlib IA-34
+ * 19th variant
+ */
+public class ConcurrentNumberList implements NumberList {
+    /**
+     * Optimistic copies that a change got in the way of before whole-list
+     * readers copy under the read lock.
+     */
+    private static final int OPTIMISTIC_COPIES = 3;
+
+    private final NumberListImpl list;
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Last snapshot, or <tt>null</tt> if the list has changed since it was
+     * taken. Valid only while its stamp validates, as a reader may publish
+     * it after a change.
+     */
+    private volatile View view;
+
+    private static final class View {
+        final long stamp;
+        final NumberListImpl digits;
+
+        View(long stamp, NumberListImpl digits) {
+            this.stamp = stamp;
+            this.digits = digits;
+        }
+    }
+
+    /**
+     * Default constructor. Returns empty <tt>ConcurrentNumberList</tt>
+     */
+    public ConcurrentNumberList() {
+        this(new NumberListImpl());
+    }
+
+    /**
+     * Wraps the list. The list must not be used directly afterwards.
+     *
+     * @param list
+     *     - list to wrap.
+     */
+    public ConcurrentNumberList(NumberListImpl list) {
+        this.list = Objects.requireNonNull(list, "list is null");
+        list.repairStarts();
+    }
+
+    /**
+     * Returns a frozen copy of the current digits. The copy is made in
+     * linear time without blocking other readers and is reused until the
+     * next change.
+     *
+     * @return snapshot of the list.
+     */
+    public NumberListImpl snapshot() {
+        View current = view;
+        if (current != null && lock.validate(current.stamp)) {
+            return current.digits;
+        }
+        for (int attempt = 0; attempt < OPTIMISTIC_COPIES; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) {
+                continue;
+            }
+            NumberListImpl copy;
+            try {
+                copy = list.peekCopy();
+            } catch (RuntimeException e) {
+                continue;
+            }
+            if (lock.validate(stamp)) {
+                view = new View(stamp, copy);
+                return copy;
+            }
+        }
+        long stamp = lock.readLock();
+        try {
+            NumberListImpl copy = list.peekCopy();
+            view = new View(stamp, copy);
+            return copy;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns decimal representation of the number in the list.
+     *
+     * @return decimal representation of the number.
+     */
+    public String toDecimalString() {
+        return snapshot().toDecimalString();
+    }
+
+    /**
+     * Returns the digit at the specified position without boxing it.
+     *
+     * @param index
+     *     - index of the digit.
+     *
+     * @return the digit.
+     */
+    public byte getDigit(int index) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            int digit;
+            try {
+                digit = list.peekDigit(index);
+            } catch (RuntimeException e) {
+                digit = -1;
+            }
+            if (digit >= 0 && lock.validate(stamp)) {
+                return (byte) digit;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return list.getDigit(index);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Replaces the digit at the specified position.
+     *
+     * @param index
+     *     - index of the digit.
+     * @param digit
+     *     - new digit.
+     */
+    public void setDigit(int index, byte digit) {
+        long stamp = lock.writeLock();
+        try {
+            list.setDigit(index, digit);
+        } finally {
+            afterWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int size = list.size();
+        if (lock.validate(stamp)) {
+            return size;
+        }
+        stamp = lock.readLock();
+        try {
+            return list.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return snapshot().contains(o);
+    }
+
+    @Override
+    public Iterator<Byte> iterator() {
+        return snapshot().iterator();
+    }
+
+    @Override
+    public Object[] toArray() {
+        return snapshot().toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return snapshot().toArray(a);
+    }
+
+    @Override
+    public boolean add(Byte e) {
+        long stamp = lock.writeLock();
+        try {
+            return list.add(e);
+        } finally {
+            afterWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        long stamp = lock.writeLock();
+        try {
+            return list.remove(o);
+        } finally {
+            afterWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        return snapshot().containsAll(stable(c));
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Byte> c) {
+        Collection<? extends Byte> source = detached(c);
+        long stamp = lock.writeLock();
+        try {
+            return list.addAll(source);
+        } finally {
+            afterWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Byte> c) {
+        Collection<? extends Byte> source = detached(c);
+        long stamp = lock.writeLock();
+        try {
+            return list.addAll(index, source);
+        } finally {
+            afterWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        Collection<?> source = detached(c);
+        long stamp = lock.writeLock();
+        try {
+            return list.removeAll(source);
+        } finally {
+            afterWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        Collection<?> source = detached(c);
+        long stamp = lock.writeLock();
+        try {
+            return list.retainAll(source);
+        } finally {
+            afterWrite(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            list.clear();
+        } finally {
+            afterWrite(stamp);
+        }
+    }
+
+    @Override
+    public Byte get(int index) {
+        return Byte.valueOf(getDigit(index));
+    }
+
+    @Override
+    public Byte set(int index, Byte element) {
+        long stamp = lock.writeLock();
+        try {
+            return list.set(index, element);
+        } finally {
+            afterWrite(stamp);
+        }
+    }
+
+    @Override
+    public void add(int index, Byte element) {
+        long stamp = lock.writeLock();
+        try {
+            list.add(index, element);
+        } finally {
+            afterWrite(stamp);
+        }
+    }
+
+    @Override
+    public Byte remove(int index) {
+        long stamp = lock.writeLock();
+        try {
+            return list.remove(index);
+        } finally {
+            afterWrite(stamp);
+        }
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return snapshot().indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return snapshot().lastIndexOf(o);
+    }
+
+    @Override
+    public ListIterator<Byte> listIterator() {
+        return snapshot().listIterator();
+    }
+
+    @Override
+    public ListIterator<Byte> listIterator(int index) {
+        return snapshot().listIterator(index);
+    }
+
+    @Override
+    public List<Byte> subList(int fromIndex, int toIndex) {
+        int size = size();
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + size);
+        }
+        return new SubList(fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * View of the digits <tt>[offset, offset + size)</tt>. Each call is
+     * passed to the list separately, so a sequence of calls is not atomic.
+     */
+    private class SubList extends AbstractList<Byte> {
+        private final int offset;
+        private int size;
+
+        SubList(int offset, int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public Byte get(int index) {
+            Objects.checkIndex(index, size);
+            return ConcurrentNumberList.this.get(offset + index);
+        }
+
+        @Override
+        public Byte set(int index, Byte element) {
+            Objects.checkIndex(index, size);
+            return ConcurrentNumberList.this.set(offset + index, element);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void add(int index, Byte element) {
+            Objects.checkIndex(index, size + 1);
+            ConcurrentNumberList.this.add(offset + index, element);
+            modCount++;
+            size++;
+        }
+
+        @Override
+        public Byte remove(int index) {
+            Objects.checkIndex(index, size);
+            Byte old = ConcurrentNumberList.this.remove(offset + index);
+            modCount++;
+            size--;
+            return old;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            long stamp = lock.writeLock();
+            try {
+                list.subList(offset + fromIndex, offset + toIndex).clear();
+            } finally {
+                afterWrite(stamp);
+            }
+            modCount++;
+            size -= toIndex - fromIndex;
+        }
+    }
+
+    @Override
+    public boolean swap(int index1, int index2) {
+        long stamp = lock.writeLock();
+        try {
+            return list.swap(index1, index2);
+        } finally {
+            afterWrite(stamp);
+        }
+    }
+
+    @Override
+    public void sortAscending() {
+        long stamp = lock.writeLock();
+        try {
+            list.sortAscending();
+        } finally {
+            afterWrite(stamp);
+        }
+    }
+
+    @Override
+    public void sortDescending() {
+        long stamp = lock.writeLock();
+        try {
+            list.sortDescending();
+        } finally {
+            afterWrite(stamp);
+        }
+    }
+
+    @Override
+    public void shiftLeft() {
+        long stamp = lock.writeLock();
+        try {
+            list.shiftLeft();
+        } finally {
+            afterWrite(stamp);
+        }
+    }
+
+    @Override
+    public void shiftRight() {
+        long stamp = lock.writeLock();
+        try {
+            list.shiftRight();
+        } finally {
+            afterWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        return snapshot().equals(stable(o));
+    }
+
+    @Override
+    public int hashCode() {
+        return snapshot().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * Repairs the node index, so that optimistic readers never need to,
+     * drops the snapshot and releases the write lock.
+     */
+    private void afterWrite(long stamp) {
+        list.repairStarts();
+        view = null;
+        lock.unlockWrite(stamp);
+    }
+
+    /**
+     * Replaces concurrent lists with their snapshots. The write lock is not
+     * reentrant, and reading another concurrent list while holding it
+     * could deadlock with that list doing the same.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T stable(T o) {
+        if (o instanceof ConcurrentNumberList) {
+            return (T) ((ConcurrentNumberList) o).snapshot();
+        }
+        return o;
+    }
+
+    /**
+     * Returns a collection with the same elements that can be read while
+     * the write lock is held: a snapshot of a concurrent list, a plain
+     * <tt>NumberListImpl</tt> itself and a copy of anything else. A sublist
+     * of this list, or any view that reads it, would wait for the write
+     * lock forever.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Collection<T> detached(Collection<T> c) {
+        if (c instanceof ConcurrentNumberList) {
+            return (Collection<T>) ((ConcurrentNumberList) c).snapshot();
+        }
+        if (c instanceof NumberListImpl) {
+            return c;
+        }
+        return new ArrayList<>(c);
+    }
+}
@@ -0,0 +1,662 @@
+/*
+ * Copyright (c) 2014, NTUU KPI, Computer systems department and/or its affiliates. All rights reserved.
+ * NTUU KPI PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ */
+package ua.kpi.comsys.test2.implementation;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Conversion of big decimal numbers without building intermediate
+ * strings.<p>
+ * <p>
+ * Decimal text is cut into leaves of 18 digits, each of which fits into
+ * a <tt>long</tt>. Leaves are joined by divide and conquer: the value of a
+ * range of leaves is <tt>high * 10^(18 * k) + low</tt>, where the lower part
+ * always has <tt>k = 2^j</tt> leaves, so only the powers
+ * <tt>10^(18 * 2^j)</tt> are needed. Writing goes the opposite way: the
+ * number is split by the same powers until the parts fit into leaves. The
+ * powers are computed once and kept for later conversions, the largest
+ * ones only until memory runs short.<p>
+ * <p>
+ * Both halves of every split are independent, so numbers with at least
+ * {@link #parallelThreshold} digits are converted on the common
+ * fork/join pool. Smaller parts of them are still converted serially.
+ *
+ * @author Sukhoruchkin Hlib IA-34
+ * 19th variant
+ */
+final class DecimalConversion {
+    static final int LEAF_DIGITS = 18;
+    static final long LEAF_RADIX = 1_000_000_000_000_000_000L;
+
+    /**
+     * Files of this size and larger are memory mapped instead of read.
+     */
+    private static final long MAP_THRESHOLD = 1L << 20;
+    private static final long MAP_WINDOW = 1L << 28;
+    private static final int READ_BUFFER = 1 << 16;
+    private static final int WRITE_BUFFER = 1 << 16;
+
+    /**
+     * Most decimal digits a file may have: a <tt>BigInteger</tt> holds at
+     * most <tt>2^31 - 1</tt> bits, and any number of 646456992 digits fits.
+     */
+    static final long MAX_FILE_DIGITS = 646_456_992L;
+
+    /**
+     * Ranges of at most this many leaves are joined by plain multiply-add.
+     */
+    private static final int SERIAL_LEAVES = 16;
+
+    /**
+     * Numbers of this many decimal digits and more are converted in
+     * parallel. Set from the <tt>ua.kpi.comsys.test2.parallelThreshold</tt>
+     * system property; <tt>Integer.MAX_VALUE</tt> turns parallel
+     * conversion off.
+     */
+    static volatile int parallelThreshold = Integer.getInteger("ua.kpi.comsys.test2.parallelThreshold", 1 << 15);
+
+    /**
+     * Parallel writing converts the number in segments of
+     * <tt>18 * 2^(SEGMENT_LEVEL + 1)</tt> digits, about a million, so
+     * only one segment of text is in memory at a time.
+     */
+    private static final int SEGMENT_LEVEL = 15;
+
+    /**
+     * Powers <tt>10^(18 * 2^j)</tt> for <tt>j</tt> below this, up to about
+     * a million digits and a megabyte in all, are kept for the lifetime of
+     * the class. Larger ones are only softly reachable.
+     */
+    private static final int CACHED_LEVELS = 17;
+
+    /**
+     * Powers <tt>10^(18 * 2^j)</tt> computed so far, at most
+     * {@link #CACHED_LEVELS} of them, shared by all conversions. The array
+     * is replaced by a longer copy when a larger number needs more powers,
+     * and is never changed after publishing.
+     */
+    private static volatile BigInteger[] decimalPowers = {BigInteger.valueOf(LEAF_RADIX)};
+
+    /**
+     * All powers needed by the largest recent conversion, which the garbage
+     * collector may drop when memory runs short.
+     */
+    private static volatile SoftReference<BigInteger[]> largePowers = new SoftReference<>(null);
+
+    private DecimalConversion() {
+    }
+
+    /**
+     * Reads a non-negative decimal number from file. The lines are joined
+     * after cutting whitespace from both ends of each of them, so the number
+     * may be split between lines, but not by whitespace inside a line. It
+     * may start with <tt>'+'</tt>.<p>
+     * <p>
+     * The whole number becomes one <tt>BigInteger</tt>, which limits a file
+     * to {@link #MAX_FILE_DIGITS} digits, about 646 million.
+     *
+     * @param path
+     *     - file where number is stored.
+     *
+     * @return the number, or <tt>null</tt> if the file has no digits.
+     * @throws NumberFormatException if the file has other characters.
+     * @throws ArithmeticException if the file has more than
+     *     {@link #MAX_FILE_DIGITS} digits.
+     * @throws IOException if the file cannot be read.
+     */
+    static BigInteger read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            Accumulator accumulator = new Accumulator(length);
+            if (length >= MAP_THRESHOLD) {
+                for (long position = 0; position < length; position += MAP_WINDOW) {
+                    long window = Math.min(MAP_WINDOW, length - position);
+                    accumulator.append(channel.map(FileChannel.MapMode.READ_ONLY, position, window));
+                }
+            } else {
+                ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER);
+                while (channel.read(buffer) >= 0) {
+                    buffer.flip();
+                    accumulator.append(buffer);
+                    buffer.clear();
+                }
+            }
+            return accumulator.toBigInteger();
+        }
+    }
+
+    /**
+     * Parses a decimal number with an optional sign, like
+     * <tt>new BigInteger(text)</tt> does.
+     *
+     * @param text
+     *     - decimal number.
+     *
+     * @return the number.
+     * @throws NumberFormatException if the text is not a decimal number.
+     */
+    static BigInteger parse(CharSequence text) {
+        int length = text.length();
+        int position = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '+' || text.charAt(0) == '-')) {
+            negative = text.charAt(0) == '-';
+            position = 1;
+        }
+        int digits = length - position;
+        if (digits == 0) {
+            throw new NumberFormatException("No digits in \"" + text + "\"");
+        }
+        int leafCount = (digits + LEAF_DIGITS - 1) / LEAF_DIGITS;
+        long[] leaves = new long[leafCount];
+        int end = position + digits - (leafCount - 1) * LEAF_DIGITS;
+        for (int i = 0; i < leafCount; i++, end += LEAF_DIGITS) {
+            long leaf = 0;
+            for (; position < end; position++) {
+                int digit = Character.digit(text.charAt(position), 10);
+                if (digit < 0) {
+                    throw new NumberFormatException("Invalid decimal digit '" + text.charAt(position) + "'");
+                }
+                leaf = leaf * 10 + digit;
+            }
+            leaves[i] = leaf;
+        }
+        BigInteger value = combine(leaves, 0, leafCount, powers(leafCount));
+        return negative ? value.negate() : value;
+    }
+
+    /**
+     * Collects decimal digits into 18-digit leaves as they arrive.
+     */
+    static final class Accumulator {
+        private long[] leaves;
+        private int leafCount;
+        private long partial;
+        private int partialDigits;
+        private long digitCount;
+        private boolean signAllowed = true;
+        private boolean lineStarted;
+        private boolean spaceInLine;
+
+        Accumulator(long expectedDigits) {
+            leaves = new long[(int) Math.min(expectedDigits / LEAF_DIGITS + 1, Integer.MAX_VALUE - 8)];
+        }
+
+        void append(ByteBuffer text) {
+            while (text.hasRemaining()) {
+                append((char) (text.get() & 0xFF));
+            }
+        }
+
+        void append(char ch) {
+            if (ch == '\n' || ch == '\r') {
+                lineStarted = false;
+                spaceInLine = false;
+                return;
+            }
+            if (ch <= ' ') {
+                // like String.trim(), only a later character makes it inner
+                spaceInLine = lineStarted;
+                return;
+            }
+            if (spaceInLine) {
+                throw new NumberFormatException("Whitespace inside a line before '" + ch + "'");
+            }
+            lineStarted = true;
+            if (ch >= '0' && ch <= '9') {
+                signAllowed = false;
+                if (++digitCount > MAX_FILE_DIGITS) {
+                    throw new ArithmeticException("More than " + MAX_FILE_DIGITS + " decimal digits");
+                }
+                partial = partial * 10 + (ch - '0');
+                if (++partialDigits == LEAF_DIGITS) {
+                    if (leafCount == leaves.length) {
+                        leaves = Arrays.copyOf(leaves, leafCount * 2);
+                    }
+                    leaves[leafCount++] = partial;
+                    partial = 0;
+                    partialDigits = 0;
+                }
+            } else if (ch == '+' && signAllowed) {
+                signAllowed = false;
+            } else {
+                throw new NumberFormatException("Invalid decimal digit '" + ch + "'");
+            }
+        }
+
+        /**
+         * @return collected number, or <tt>null</tt> if there were no digits.
+         */
+        BigInteger toBigInteger() {
+            if (leafCount == 0 && partialDigits == 0) {
+                return null;
+            }
+            BigInteger value = leafCount == 0
+                    ? BigInteger.ZERO
+                    : combine(leaves, 0, leafCount, powers(leafCount));
+            if (partialDigits > 0) {
+                value = value.multiply(BigInteger.TEN.pow(partialDigits)).add(BigInteger.valueOf(partial));
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Returns <tt>10^(18 * 2^j)</tt> for every <tt>j</tt> needed to join
+     * <tt>leafCount</tt> leaves.
+     */
+    static BigInteger[] powers(int leafCount) {
+        return decimalPowers(Math.max(1, 32 - Integer.numberOfLeadingZeros(leafCount)));
+    }
+
+    /**
+     * @return cached powers <tt>10^(18 * 2^j)</tt>, at least
+     *     <tt>levels</tt> of them.
+     */
+    private static BigInteger[] decimalPowers(int levels) {
+        BigInteger[] powers = decimalPowers;
+        if (powers.length >= levels) {
+            return powers;
+        }
+        if (levels > CACHED_LEVELS) {
+            BigInteger[] large = largePowers.get();
+            if (large != null && large.length >= levels) {
+                return large;
+            }
+        }
+        synchronized (DecimalConversion.class) {
+            powers = decimalPowers;
+            if (powers.length < Math.min(levels, CACHED_LEVELS)) {
+                powers = extend(powers, Math.min(levels, CACHED_LEVELS));
+                decimalPowers = powers;
+            }
+            if (levels <= CACHED_LEVELS) {
+                return powers;
+            }
+            BigInteger[] large = largePowers.get();
+            if (large == null || large.length < levels) {
+                large = extend((large == null) ? powers : large, levels);
+                largePowers = new SoftReference<>(large);
+            }
+            return large;
+        }
+    }
+
+    /**
+     * @return copy of the powers with the following ones up to
+     *     <tt>levels</tt> added.
+     */
+    private static BigInteger[] extend(BigInteger[] powers, int levels) {
+        int known = powers.length;
+        powers = Arrays.copyOf(powers, levels);
+        for (int j = known; j < levels; j++) {
+            powers[j] = square(powers[j - 1]);
+        }
+        return powers;
+    }
+
+    /**
+     * Returns <tt>radix^(2^j)</tt> for every <tt>j</tt> needed to join
+     * <tt>leafCount</tt> leaves of the given radix. {@link #combine} works
+     * with leaves of any radix given these powers.
+     */
+    static BigInteger[] powers(BigInteger radix, int leafCount) {
+        int levels = Math.max(1, 32 - Integer.numberOfLeadingZeros(leafCount));
+        BigInteger[] powers = new BigInteger[levels];
+        powers[0] = radix;
+        for (int j = 1; j < levels; j++) {
+            powers[j] = square(powers[j - 1]);
+        }
+        return powers;
+    }
+
+    /**
+     * Finds the power <tt>10^(18 * 2^level)</tt> that splits the value in
+     * two, extending the cached powers up to it.
+     *
+     * @return index of that power, or <tt>-1</tt> if the value fits into a
+     *     leaf.
+     */
+    private static int splitLevel(BigInteger value) {
+        BigInteger[] powers = decimalPowers(1);
+        int level = -1;
+        while (powers[level + 1].compareTo(value) <= 0) {
+            level++;
+            if (2 * powers[level].bitLength() - 1 > value.bitLength()) {
+                break;
+            }
+            if (powers.length < level + 2) {
+                powers = decimalPowers(level + 2);
+            }
+        }
+        return level;
+    }
+
+    private static BigInteger square(BigInteger value) {
+        return isLarge(value) ? value.parallelMultiply(value) : value.multiply(value);
+    }
+
+    /**
+     * @return <tt>true</tt> if the value has at least
+     *     {@link #parallelThreshold} decimal digits.
+     */
+    private static boolean isLarge(BigInteger value) {
+        // log2(10) > 3.32, so this slightly underestimates the digit count
+        return value.bitLength() / 3.33 >= parallelThreshold;
+    }
+
+    /**
+     * Joins leaves <tt>[from, to)</tt>, the first of them being the most
+     * significant.
+     */
+    static BigInteger combine(long[] leaves, int from, int to, BigInteger[] powers) {
+        if ((long) (to - from) * LEAF_DIGITS >= parallelThreshold) {
+            return ForkJoinPool.commonPool().invoke(new CombineTask(leaves, from, to, powers));
+        }
+        return combineSerially(leaves, from, to, powers);
+    }
+
+    private static BigInteger combineSerially(long[] leaves, int from, int to, BigInteger[] powers) {
+        int count = to - from;
+        if (count <= SERIAL_LEAVES) {
+            BigInteger value = BigInteger.valueOf(leaves[from]);
+            BigInteger radix = powers[0];
+            for (int i = from + 1; i < to; i++) {
+                value = value.multiply(radix).add(BigInteger.valueOf(leaves[i]));
+            }
+            return value;
+        }
+        int level = 31 - Integer.numberOfLeadingZeros(count - 1);
+        int middle = to - (1 << level);
+        BigInteger high = combineSerially(leaves, from, middle, powers);
+        BigInteger low = combineSerially(leaves, middle, to, powers);
+        return high.multiply(powers[level]).add(low);
+    }
+
+    /**
+     * Joins leaves like {@link #combineSerially}, joining the higher half
+     * of large ranges in a forked task.
+     */
+    private static final class CombineTask extends RecursiveTask<BigInteger> {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] leaves;
+        private final int from;
+        private final int to;
+        private final BigInteger[] powers;
+
+        CombineTask(long[] leaves, int from, int to, BigInteger[] powers) {
+            this.leaves = leaves;
+            this.from = from;
+            this.to = to;
+            this.powers = powers;
+        }
+
+        @Override
+        protected BigInteger compute() {
+            int count = to - from;
+            if ((long) count * LEAF_DIGITS < parallelThreshold || count <= SERIAL_LEAVES) {
+                return combineSerially(leaves, from, to, powers);
+            }
+            int level = 31 - Integer.numberOfLeadingZeros(count - 1);
+            int middle = to - (1 << level);
+            CombineTask high = new CombineTask(leaves, from, middle, powers);
+            high.fork();
+            BigInteger low = new CombineTask(leaves, middle, to, powers).compute();
+            return high.join().parallelMultiply(powers[level]).add(low);
+        }
+    }
+
+    /**
+     * Converts a non-negative number to decimal, like
+     * <tt>value.toString()</tt> does.
+     *
+     * @param value
+     *     - number to convert.
+     *
+     * @return decimal text of the number.
+     */
+    static String toString(BigInteger value) {
+        if (!isLarge(value)) {
+            return value.toString();
+        }
+        int level = splitLevel(value);
+        BigInteger[] powers = decimalPowers(level + 1);
+        byte[] text = new byte[LEAF_DIGITS << (level + 1)];
+        ForkJoinPool.commonPool().invoke(new DigitsTask(value, level, powers, text, text.length));
+        int start = 0;
+        while (text[start] == '0') {
+            start++;
+        }
+        return new String(text, start, text.length - start, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Writes a value smaller than <tt>10^(18 * 2^(level + 1))</tt> into
+     * <tt>text</tt>, right-aligned at <tt>end</tt> and padded with zeros
+     * to <tt>18 * 2^(level + 1)</tt> digits. The higher half of a large
+     * value is written by a forked task.
+     */
+    private static final class DigitsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BigInteger value;
+        private final int level;
+        private final BigInteger[] powers;
+        private final byte[] text;
+        private final int end;
+
+        DigitsTask(BigInteger value, int level, BigInteger[] powers, byte[] text, int end) {
+            this.value = value;
+            this.level = level;
+            this.powers = powers;
+            this.text = text;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            write(value, level, end, isLarge(value));
+        }
+
+        private void write(BigInteger value, int level, int end, boolean parallel) {
+            for (; level >= 0 && value.compareTo(powers[level]) < 0; level--) {
+                int width = LEAF_DIGITS << level;
+                Arrays.fill(text, end - 2 * width, end - width, (byte) '0');
+            }
+            if (level < 0) {
+                long leaf = value.longValue();
+                for (int i = end - 1; i >= end - LEAF_DIGITS; i--) {
+                    text[i] = (byte) ('0' + leaf % 10);
+                    leaf /= 10;
+                }
+                return;
+            }
+            BigInteger[] parts = value.divideAndRemainder(powers[level]);
+            int width = LEAF_DIGITS << level;
+            if (parallel && isLarge(parts[0])) {
+                DigitsTask high = new DigitsTask(parts[0], level - 1, powers, text, end - width);
+                high.fork();
+                write(parts[1], level - 1, end, isLarge(parts[1]));
+                high.join();
+            } else {
+                write(parts[0], level - 1, end - width, false);
+                write(parts[1], level - 1, end, false);
+            }
+        }
+    }
+
+    /**
+     * Writes a non-negative number in decimal to the channel. Parts of the
+     * decimal text are produced from the most significant end and written
+     * as soon as the buffer fills up, so the whole text is never in memory.
+     *
+     * @param value
+     *     - number to write.
+     * @param channel
+     *     - destination channel.
+     *
+     * @throws IOException if the channel cannot be written.
+     */
+    static void write(BigInteger value, WritableByteChannel channel) throws IOException {
+        int level = splitLevel(value);
+        BigInteger[] powers = decimalPowers(level + 1);
+        if (isLarge(value)) {
+            writeInParallel(value, level, powers, channel);
+            return;
+        }
+        DecimalWriter writer = new DecimalWriter(channel);
+        writer.write(value, level, powers, false);
+        writer.flush();
+    }
+
+    /**
+     * Splits the value into segments in parallel, then converts the
+     * segments one by one, each of them in parallel, into the same buffer.
+     */
+    private static void writeInParallel(BigInteger value, int level, BigInteger[] powers,
+            WritableByteChannel channel) throws IOException {
+        int segmentLevel = Math.min(level, SEGMENT_LEVEL);
+        BigInteger[] segments = new BigInteger[1 << (level - segmentLevel)];
+        ForkJoinPool.commonPool().invoke(new SegmentTask(value, level, segmentLevel, powers, segments, 0));
+        byte[] text = new byte[LEAF_DIGITS << (segmentLevel + 1)];
+        boolean leading = true;
+        for (int i = 0; i < segments.length; i++) {
+            BigInteger segment = segments[i];
+            if (leading && segment.signum() == 0 && i < segments.length - 1) {
+                continue;
+            }
+            segments[i] = null;
+            ForkJoinPool.commonPool().invoke(new DigitsTask(segment, segmentLevel, powers, text, text.length));
+            int start = 0;
+            if (leading) {
+                while (start < text.length - 1 && text[start] == '0') {
+                    start++;
+                }
+                leading = false;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(text, start, text.length - start);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Splits a value smaller than <tt>10^(18 * 2^(level + 1))</tt> into
+     * <tt>2^(level - segmentLevel)</tt> segments of
+     * <tt>18 * 2^(segmentLevel + 1)</tt> digits, the most significant first.
+     */
+    private static final class SegmentTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BigInteger value;
+        private final int level;
+        private final int segmentLevel;
+        private final BigInteger[] powers;
+        private final BigInteger[] segments;
+        private final int first;
+
+        SegmentTask(BigInteger value, int level, int segmentLevel, BigInteger[] powers,
+                BigInteger[] segments, int first) {
+            this.value = value;
+            this.level = level;
+            this.segmentLevel = segmentLevel;
+            this.powers = powers;
+            this.segments = segments;
+            this.first = first;
+        }
+
+        @Override
+        protected void compute() {
+            if (level == segmentLevel) {
+                segments[first] = value;
+                return;
+            }
+            int half = 1 << (level - segmentLevel - 1);
+            if (value.compareTo(powers[level]) < 0) {
+                Arrays.fill(segments, first, first + half, BigInteger.ZERO);
+                new SegmentTask(value, level - 1, segmentLevel, powers, segments, first + half).compute();
+                return;
+            }
+            BigInteger[] parts = value.divideAndRemainder(powers[level]);
+            SegmentTask high = new SegmentTask(parts[0], level - 1, segmentLevel, powers, segments, first);
+            high.fork();
+            new SegmentTask(parts[1], level - 1, segmentLevel, powers, segments, first + half).compute();
+            high.join();
+        }
+    }
+
+    /**
+     * Emits decimal leaves through a reusable buffer.
+     */
+    private static final class DecimalWriter {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER);
+        private final byte[] leaf = new byte[LEAF_DIGITS];
+
+        DecimalWriter(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Writes a value smaller than <tt>10^(18 * 2^(level + 1))</tt>.
+         * Padded values are written with all <tt>18 * 2^(level + 1)</tt>
+         * digits, leading zeros included.
+         */
+        void write(BigInteger value, int level, BigInteger[] powers, boolean padded) throws IOException {
+            if (level < 0) {
+                writeLeaf(value.longValue(), padded);
+                return;
+            }
+            if (!padded && value.compareTo(powers[level]) < 0) {
+                write(value, level - 1, powers, false);
+                return;
+            }
+            BigInteger[] parts = value.divideAndRemainder(powers[level]);
+            write(parts[0], level - 1, powers, padded);
+            write(parts[1], level - 1, powers, true);
+        }
+
+        private void writeLeaf(long value, boolean padded) throws IOException {
+            int start = LEAF_DIGITS;
+            do {
+                leaf[--start] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            if (padded) {
+                while (start > 0) {
+                    leaf[--start] = '0';
+                }
+            }
+            if (buffer.remaining() < LEAF_DIGITS) {
+                flush();
+            }
+            buffer.put(leaf, start, LEAF_DIGITS - start);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
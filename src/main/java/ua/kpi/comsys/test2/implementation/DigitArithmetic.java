@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2014, NTUU KPI, Computer systems department and/or its affiliates. All rights reserved.
+ * NTUU KPI PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ */
+package ua.kpi.comsys.test2.implementation;
+
+import java.util.Arrays;
+
+/**
+ * Arithmetic on non-negative numbers stored as magnitudes of 32-bit
+ * limbs, the least significant limb first.<p>
+ * <p>
+ * Every method takes magnitudes without leading zero limbs and returns a
+ * new one of the same form, so zero is the empty array. Operands are never
+ * changed.
+ *
+ * @author Sukhoruchkin Hlib IA-34
+ * 19th variant
+ */
+final class DigitArithmetic {
+    private static final long MASK = 0xFFFF_FFFFL;
+    private static final int[] ZERO = new int[0];
+
+    /**
+     * Operands shorter than this many limbs are multiplied by the
+     * schoolbook method, longer ones by Karatsuba.
+     */
+    static final int KARATSUBA_THRESHOLD = 48;
+
+    private DigitArithmetic() {
+    }
+
+    static int[] add(int[] a, int[] b) {
+        if (a.length < b.length) {
+            int[] t = a;
+            a = b;
+            b = t;
+        }
+        int[] result = new int[a.length + 1];
+        long carry = 0;
+        for (int i = 0; i < a.length; i++) {
+            long sum = (a[i] & MASK) + (i < b.length ? b[i] & MASK : 0) + carry;
+            result[i] = (int) sum;
+            carry = sum >>> 32;
+        }
+        result[a.length] = (int) carry;
+        return trim(result, result.length);
+    }
+
+    /**
+     * @throws ArithmeticException if <tt>b</tt> is greater than <tt>a</tt>.
+     */
+    static int[] subtract(int[] a, int[] b) {
+        if (compare(a, b) < 0) {
+            throw new ArithmeticException("Negative result of subtraction");
+        }
+        int[] result = new int[a.length];
+        long borrow = 0;
+        for (int i = 0; i < a.length; i++) {
+            long diff = (a[i] & MASK) - (i < b.length ? b[i] & MASK : 0) - borrow;
+            result[i] = (int) diff;
+            borrow = diff >>> 63;
+        }
+        return trim(result, result.length);
+    }
+
+    static int compare(int[] a, int[] b) {
+        if (a.length != b.length) {
+            return (a.length < b.length) ? -1 : 1;
+        }
+        for (int i = a.length - 1; i >= 0; i--) {
+            if (a[i] != b[i]) {
+                return Integer.compareUnsigned(a[i], b[i]);
+            }
+        }
+        return 0;
+    }
+
+    static int[] multiply(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return ZERO;
+        }
+        if (a.length < b.length) {
+            int[] t = a;
+            a = b;
+            b = t;
+        }
+        if (b.length < KARATSUBA_THRESHOLD) {
+            return schoolbook(a, b);
+        }
+        int half = (a.length + 1) / 2;
+        int[] a0 = low(a, half);
+        int[] a1 = high(a, half);
+        if (b.length <= half) {
+            // too unbalanced for Karatsuba: multiply both halves of a by b
+            return add(multiply(a0, b), shift(multiply(a1, b), half));
+        }
+        int[] b0 = low(b, half);
+        int[] b1 = high(b, half);
+        int[] z0 = multiply(a0, b0);
+        int[] z2 = multiply(a1, b1);
+        int[] z1 = subtract(subtract(multiply(add(a0, a1), add(b0, b1)), z0), z2);
+        return add(add(shift(z2, 2 * half), shift(z1, half)), z0);
+    }
+
+    private static int[] schoolbook(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        for (int j = 0; j < b.length; j++) {
+            long m = b[j] & MASK;
+            long carry = 0;
+            for (int i = 0; i < a.length; i++) {
+                long p = (a[i] & MASK) * m + (result[i + j] & MASK) + carry;
+                result[i + j] = (int) p;
+                carry = p >>> 32;
+            }
+            result[j + a.length] = (int) carry;
+        }
+        return trim(result, result.length);
+    }
+
+    /**
+     * Divides by the schoolbook method of Knuth (TAOCP vol. 2, 4.3.1,
+     * algorithm D).
+     *
+     * @return quotient and remainder.
+     * @throws ArithmeticException if <tt>v</tt> is zero.
+     */
+    static int[][] divideAndRemainder(int[] u, int[] v) {
+        if (v.length == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        if (compare(u, v) < 0) {
+            return new int[][] {ZERO, u.clone()};
+        }
+        if (v.length == 1) {
+            long divisor = v[0] & MASK;
+            int[] quotient = new int[u.length];
+            long rem = 0;
+            for (int i = u.length - 1; i >= 0; i--) {
+                long current = (rem << 32) | (u[i] & MASK);
+                quotient[i] = (int) Long.divideUnsigned(current, divisor);
+                rem = Long.remainderUnsigned(current, divisor);
+            }
+            return new int[][] {trim(quotient, quotient.length), (rem == 0) ? ZERO : new int[] {(int) rem}};
+        }
+        int n = v.length;
+        int m = u.length - n;
+        int s = Integer.numberOfLeadingZeros(v[n - 1]);
+        int[] vn = shiftBits(v, s, n);
+        int[] un = shiftBits(u, s, u.length + 1);
+        int[] quotient = new int[m + 1];
+        long vTop = vn[n - 1] & MASK;
+        long vNext = vn[n - 2] & MASK;
+        for (int j = m; j >= 0; j--) {
+            long numerator = ((un[j + n] & MASK) << 32) | (un[j + n - 1] & MASK);
+            long qhat = Long.divideUnsigned(numerator, vTop);
+            long rhat = Long.remainderUnsigned(numerator, vTop);
+            while (qhat > MASK
+                    || Long.compareUnsigned(qhat * vNext, (rhat << 32) | (un[j + n - 2] & MASK)) > 0) {
+                qhat--;
+                rhat += vTop;
+                if (rhat > MASK) {
+                    break;
+                }
+            }
+            long carry = 0;
+            long borrow = 0;
+            for (int i = 0; i < n; i++) {
+                long p = qhat * (vn[i] & MASK) + carry;
+                carry = p >>> 32;
+                long t = (un[i + j] & MASK) - (p & MASK) - borrow;
+                un[i + j] = (int) t;
+                borrow = t >>> 63;
+            }
+            long t = (un[j + n] & MASK) - carry - borrow;
+            un[j + n] = (int) t;
+            if (t < 0) {
+                // qhat was one too large: add the divisor back
+                qhat--;
+                long c = 0;
+                for (int i = 0; i < n; i++) {
+                    long sum = (un[i + j] & MASK) + (vn[i] & MASK) + c;
+                    un[i + j] = (int) sum;
+                    c = sum >>> 32;
+                }
+                un[j + n] += (int) c;
+            }
+            quotient[j] = (int) qhat;
+        }
+        int[] remainder = new int[n];
+        for (int i = 0; i < n; i++) {
+            remainder[i] = (s == 0) ? un[i] : (un[i] >>> s) | (un[i + 1] << (32 - s));
+        }
+        return new int[][] {trim(quotient, quotient.length), trim(remainder, n)};
+    }
+
+    /**
+     * Shifts left by <tt>bits < 32</tt> into an array of the given length.
+     */
+    private static int[] shiftBits(int[] a, int bits, int length) {
+        int[] result = new int[length];
+        if (bits == 0) {
+            System.arraycopy(a, 0, result, 0, a.length);
+            return result;
+        }
+        int carry = 0;
+        for (int i = 0; i < a.length; i++) {
+            result[i] = (a[i] << bits) | carry;
+            carry = a[i] >>> (32 - bits);
+        }
+        if (a.length < length) {
+            result[a.length] = carry;
+        }
+        return result;
+    }
+
+    /**
+     * @return <tt>a * 2^(32 * limbs)</tt>.
+     */
+    private static int[] shift(int[] a, int limbs) {
+        if (a.length == 0) {
+            return ZERO;
+        }
+        int[] result = new int[a.length + limbs];
+        System.arraycopy(a, 0, result, limbs, a.length);
+        return result;
+    }
+
+    private static int[] low(int[] a, int limbs) {
+        return trim(a, Math.min(limbs, a.length));
+    }
+
+    private static int[] high(int[] a, int limbs) {
+        return (a.length <= limbs) ? ZERO : Arrays.copyOfRange(a, limbs, a.length);
+    }
+
+    /**
+     * @return the first <tt>length</tt> limbs of <tt>a</tt> without leading
+     *     zero limbs, <tt>a</tt> itself if nothing has to be cut.
+     */
+    static int[] trim(int[] a, int length) {
+        while (length > 0 && a[length - 1] == 0) {
+            length--;
+        }
+        if (length == a.length) {
+            return a;
+        }
+        return (length == 0) ? ZERO : Arrays.copyOf(a, length);
+    }
+}
@@ -6,15 +6,33 @@
  */
 package ua.kpi.comsys.test2.implementation;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 import ua.kpi.comsys.test2.NumberList;
 
@@ -26,12 +44,143 @@ public class NumberListImpl implements NumberList {
     private static final int MAIN_BASE = 16;
     private static final int ADDITIONAL_BASE = 2;
 
+    /**
+     * Number of <tt>long</tt> words in a single ring node.
+     */
+    private static final int CHUNK_WORDS = 16;
+
+    private static final int INITIAL_NODES = 4;
+
+    /**
+     * <tt>DIGIT_SWAP_MASKS[s]</tt> selects the lower half of every group of
+     * <tt>2 << s</tt> bits.
+     */
+    private static final long[] DIGIT_SWAP_MASKS = {
+        0x5555_5555_5555_5555L, 0x3333_3333_3333_3333L, 0x0F0F_0F0F_0F0F_0F0FL,
+        0x00FF_00FF_00FF_00FFL, 0x0000_FFFF_0000_FFFFL, 0x0000_0000_FFFF_FFFFL
+    };
+
+    /**
+     * Element of the circular singly linked list. Instead of a single digit
+     * every node holds a run of consecutive digits packed into <tt>long</tt>
+     * words: digit <tt>k</tt> of the node occupies <tt>bitsPerDigit</tt> bits
+     * of word <tt>k / digitsPerWord</tt>, starting at bit
+     * <tt>(k % digitsPerWord) * bitsPerDigit</tt>. Bits of unused digit
+     * positions are always zero.<p>
+     * <p>
+     * A hex digit takes 4 bits and a binary digit takes 1 bit, so a node of
+     * 16 words keeps 256 hex or 1024 binary digits in about 170 bytes,
+     * while a node per digit costs about 24 bytes for every digit.
+     */
     private static class Node {
-        byte value;
+        final long[] words = new long[CHUNK_WORDS];
+        int count;
         Node next;
+    }
+
+    /**
+     * Free nodes of one thread, linked through <tt>next</tt>. All words of
+     * a free node are zero.
+     */
+    private static final class NodePool {
+        Node free;
+        int count;
+    }
+
+    private static final ThreadLocal<NodePool> NODE_POOLS = ThreadLocal.withInitial(NodePool::new);
+
+    /**
+     * Position of a single digit inside the ring. Moving past the last
+     * digit of the ring continues from the first one.
+     */
+    private final class Cursor {
+        int nodeIndex;
+        Node node;
+        int offset;
+
+        Cursor(int index) {
+            int position = physicalIndex(index);
+            nodeIndex = nodeIndexOf(position);
+            node = nodes[nodeIndex];
+            offset = position - starts[nodeIndex];
+        }
+
+        int digit() {
+            return digitAt(node, offset);
+        }
+
+        void setDigit(int digit) {
+            putDigit(node, offset, digit);
+        }
+
+        void next() {
+            if (++offset == node.count) {
+                node = node.next;
+                nodeIndex = (nodeIndex + 1 == nodeCount) ? 0 : nodeIndex + 1;
+                offset = 0;
+            }
+        }
+
+        /**
+         * Moves forward by <tt>count</tt> digits, all in the current node.
+         */
+        void skip(int count) {
+            offset += count;
+            if (offset == node.count) {
+                node = node.next;
+                nodeIndex = (nodeIndex + 1 == nodeCount) ? 0 : nodeIndex + 1;
+                offset = 0;
+            }
+        }
+
+        void previous() {
+            if (offset == 0) {
+                nodeIndex = (nodeIndex == 0) ? nodeCount - 1 : nodeIndex - 1;
+                node = nodes[nodeIndex];
+                offset = node.count;
+            }
+            offset--;
+        }
+
+        /**
+         * Reads <tt>count</tt> digits, at most a word of them, and moves
+         * past them.
+         *
+         * @return the digits packed as in a node word, the first one in the
+         *     lowest bits.
+         */
+        long read(int count) {
+            long result = 0;
+            for (int done = 0; done < count; ) {
+                int inWord = offset & wordMask;
+                int take = Math.min(Math.min(wordMask + 1 - inWord, node.count - offset), count - done);
+                long bits = node.words[offset >>> wordShift] >>> (inWord << bitShift);
+                if (take <= wordMask) {
+                    bits &= (1L << (take << bitShift)) - 1;
+                }
+                result |= bits << (done << bitShift);
+                done += take;
+                skip(take);
+            }
+            return result;
+        }
 
-        Node(byte value) {
-            this.value = value;
+        /**
+         * Overwrites <tt>count</tt> digits, at most a word of them, with
+         * digits packed as by {@link #read}, and moves past them.
+         */
+        void write(long bits, int count) {
+            while (count > 0) {
+                int inWord = offset & wordMask;
+                int take = Math.min(Math.min(wordMask + 1 - inWord, node.count - offset), count);
+                int shift = inWord << bitShift;
+                long mask = (take <= wordMask) ? ((1L << (take << bitShift)) - 1) << shift : -1L;
+                int w = offset >>> wordShift;
+                node.words[w] = (node.words[w] & ~mask) | ((bits << shift) & mask);
+                bits >>>= take << bitShift;
+                count -= take;
+                skip(take);
+            }
         }
     }
 
@@ -40,14 +189,84 @@ public class NumberListImpl implements NumberList {
     private int size;
     private int base;
 
+    /**
+     * Ring nodes in order starting from <tt>head</tt>, so that a node
+     * can be found by binary search over <tt>starts</tt> instead of walking
+     * the ring.
+     */
+    private Node[] nodes = new Node[INITIAL_NODES];
+    private int nodeCount;
+
+    /**
+     * <tt>starts[i]</tt> is the index of the first digit of <tt>nodes[i]</tt>.
+     * Only the first <tt>validStarts</tt> entries are up to date, the rest
+     * are recomputed on the next lookup.
+     */
+    private int[] starts = new int[INITIAL_NODES];
+    private int validStarts;
+
+    /**
+     * Position in the ring of the digit with index 0. Cyclic shifts only
+     * move this origin, the digits themselves stay in place.
+     */
+    private int origin;
+
+    /**
+     * Number of changes that may invalidate cursors: insertions, removals
+     * and moves of digits between positions. Iterators use it to fail fast.
+     */
+    private int modCount;
+
+    /**
+     * Snapshots are frozen and refuse any change.
+     */
+    private boolean frozen;
+
+    /**
+     * Set when snapshots share the nodes and the node index of this list.
+     * The next change copies them first.
+     */
+    private boolean shared;
+
+    /**
+     * Values derived from the digits, computed on demand and dropped before
+     * every change. They are immutable, so a frozen list may fill them in
+     * from several threads.
+     */
+    private BigInteger cachedValue;
+    private String cachedDecimal;
+    private String cachedText;
+
+    /**
+     * <tt>List.hashCode()</tt> of the digits, or 0 if not computed yet.
+     */
+    private int cachedHash;
+
+    /**
+     * Lists with more digits than this do not keep derived values.
+     */
+    private static volatile int cacheLimit = Integer.getInteger("ua.kpi.comsys.test2.cacheLimit", Integer.MAX_VALUE);
+
+    /**
+     * Largest number of free nodes kept by every thread, 0 if nodes are
+     * not recycled.
+     */
+    private static volatile int nodePoolCapacity = Integer.getInteger("ua.kpi.comsys.test2.nodePoolCapacity", 0);
+
+    private int bitShift;
+    private int wordShift;
+    private int wordMask;
+    private int digitMask;
+    private int chunkCapacity;
+
     /**
      * Default constructor. Returns empty <tt>NumberListImpl</tt>
      */
     public NumberListImpl() {
-        this.base = MAIN_BASE;
         this.head = null;
         this.tail = null;
         this.size = 0;
+        setBase(MAIN_BASE);
     }
 
     /**
@@ -56,6 +275,8 @@ public class NumberListImpl implements NumberList {
      *
      * @param file
      *     - file where number is stored.
+     * @throws ArithmeticException if the number has more digits than a
+     *     <tt>BigInteger</tt> can hold, about 646 million.
      */
     public NumberListImpl(File file) {
         this();
@@ -65,22 +286,16 @@ public class NumberListImpl implements NumberList {
         if (!file.exists() || !file.isFile()) {
             return;
         }
-        StringBuilder sb = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sb.append(line.trim());
-            }
+        BigInteger value;
+        try {
+            value = DecimalConversion.read(file.toPath());
         } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read file " + file, e);
+        } catch (NumberFormatException e) {
             return;
         }
-        String value = sb.toString().trim();
-        if (value.isEmpty()) {
-            return;
-        }
-        try {
-            initFromDecimalString(value);
-        } catch (IllegalArgumentException ex) {
+        if (value != null) {
+            fromBigInteger(value, this.base);
         }
     }
 
@@ -114,14 +329,172 @@ public class NumberListImpl implements NumberList {
      *     - file where number has to be stored.
      */
     public void saveList(File file) {
+        saveList(file, false);
+    }
+
+    /**
+     * Saves the number, stored in the list, into specified file
+     * in <b>decimal</b> scale of notation.<p>
+     * <p>
+     * In atomic mode the number is written into a temporary file in the
+     * same directory, which then replaces the target file, so nobody sees
+     * a partly written number. The file keeps its permissions, and a new
+     * file gets the same ones as in plain mode.
+     *
+     * @param file
+     *     - file where number has to be stored.
+     * @param atomic
+     *     - <tt>true</tt> to replace the file only after the whole number
+     *     is written.
+     */
+    public void saveList(File file, boolean atomic) {
         if (file == null) {
             throw new IllegalArgumentException("file is null");
         }
-        String dec = toDecimalString();
-        try (java.io.PrintWriter pw = new java.io.PrintWriter(file)) {
-            pw.print(dec);
-        } catch (java.io.FileNotFoundException e) {
-            throw new RuntimeException("Failed to write file", e);
+        BigInteger value = toBigInteger();
+        Path target = file.toPath();
+        try {
+            if (!atomic) {
+                try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    DecimalConversion.write(value, channel);
+                }
+                return;
+            }
+            Path temp = createSibling(target);
+            try {
+                if (Files.exists(target)
+                        && Files.getFileStore(target).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                    Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+                }
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    DecimalConversion.write(value, channel);
+                    channel.force(true);
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write file " + file, e);
+        }
+    }
+
+    /**
+     * Creates a new empty file with a random name in the directory of
+     * <tt>target</tt>. Unlike <tt>Files.createTempFile</tt> it gets the
+     * default permissions, as a file created by a plain write does.
+     */
+    private static Path createSibling(Path target) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        while (true) {
+            String suffix = Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36);
+            try {
+                return Files.createFile(directory.resolve(target.getFileName() + "." + suffix + ".tmp"));
+            } catch (FileAlreadyExistsException e) {
+                // taken by another writer, try another name
+            }
+        }
+    }
+
+    /**
+     * Saves the digits of the list into specified file in binary form: a
+     * header with the scale of notation, the number of digits and a
+     * checksum, followed by the digits packed as in the list itself, see
+     * {@link BinaryFormat}. Unlike {@link #saveList(File)} no conversion to
+     * decimal is done.
+     *
+     * @param path
+     *     - file where the digits have to be stored.
+     */
+    public void saveBinary(Path path) {
+        if (path == null) {
+            throw new IllegalArgumentException("path is null");
+        }
+        int digitsPerWord = wordMask + 1;
+        Cursor cursor = (size > 0) ? new Cursor(0) : null;
+        try {
+            BinaryFormat.write(path, base, size, new PrimitiveIterator.OfLong() {
+                private int done;
+
+                @Override
+                public boolean hasNext() {
+                    return done < size;
+                }
+
+                @Override
+                public long nextLong() {
+                    int count = Math.min(digitsPerWord, size - done);
+                    done += count;
+                    return cursor.read(count);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write file " + path, e);
+        }
+    }
+
+    /**
+     * Loads a list saved by {@link #saveBinary(Path)}. The body is read in
+     * a single sequential pass straight into the words of the ring nodes.
+     *
+     * @param path
+     *     - file where the digits are stored.
+     *
+     * @return list with the saved digits in the saved scale of notation.
+     * @throws UncheckedIOException if the file cannot be read, is not in
+     *     the binary format or is damaged.
+     */
+    public static NumberListImpl loadBinary(Path path) {
+        if (path == null) {
+            throw new IllegalArgumentException("path is null");
+        }
+        try (BinaryFormat.Reader reader = new BinaryFormat.Reader(path)) {
+            NumberListImpl list = new NumberListImpl();
+            list.setBase(reader.header().base);
+            int size = reader.header().size;
+            for (int position = 0; position < size; ) {
+                Node node = list.newNode();
+                int count = Math.min(list.chunkCapacity, size - position);
+                for (int w = 0; w << list.wordShift < count; w++) {
+                    node.words[w] = reader.nextWord();
+                }
+                node.count = count;
+                list.linkNode(list.nodeCount, node);
+                list.size += count;
+                position += count;
+            }
+            if ((size & list.wordMask) != 0) {
+                long last = list.tail.words[(list.tail.count - 1) >>> list.wordShift];
+                if (last >>> ((size & list.wordMask) << list.bitShift) != 0) {
+                    throw new IOException("Nonzero bits after the last digit");
+                }
+            }
+            reader.finish();
+            list.modCount++;
+            return list;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read file " + path, e);
+        }
+    }
+
+    /**
+     * Returns the number of digits in a file saved by
+     * {@link #saveBinary(Path)}, reading only its header.
+     *
+     * @param path
+     *     - file where the digits are stored.
+     *
+     * @return number of digits in the file.
+     */
+    public static int readBinarySize(Path path) {
+        if (path == null) {
+            throw new IllegalArgumentException("path is null");
+        }
+        try {
+            return BinaryFormat.readHeader(path).size;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read file " + path, e);
         }
     }
 
@@ -143,11 +516,77 @@ public class NumberListImpl implements NumberList {
      * @return <tt>NumberListImpl</tt> in other scale of notation.
      */
     public NumberListImpl changeScale() {
-        BigInteger value = toBigInteger();
         int targetBase = (this.base == MAIN_BASE) ? ADDITIONAL_BASE : MAIN_BASE;
+        if (Integer.bitCount(this.base) == 1 && Integer.bitCount(targetBase) == 1) {
+            return regroupDigits(targetBase);
+        }
+        BigInteger value = toBigInteger();
         return new NumberListImpl(value, targetBase);
     }
 
+    /**
+     * Converts the number between two power of two bases by regrouping its
+     * bits.
+     */
+    private NumberListImpl regroupDigits(int targetBase) {
+        NumberListImpl result = new NumberListImpl();
+        result.setBase(targetBase);
+        int sourceBits = Integer.numberOfTrailingZeros(this.base);
+        DigitPacker packer = new DigitPacker(result, (long) size * sourceBits);
+        if (size > 0) {
+            Cursor cursor = new Cursor(0);
+            for (int i = 0; i < size; i++) {
+                packer.push(cursor.digit(), sourceBits);
+                cursor.next();
+            }
+        }
+        packer.finish();
+        return result;
+    }
+
+    /**
+     * Appends digits of a power of two base to an empty list from a stream
+     * of bits, most significant bits first. The bit stream is cut into
+     * groups of the digit width, the first group taking the bits left over
+     * at the most significant end. Leading zero digits are not appended.
+     */
+    private static final class DigitPacker {
+        private final NumberListImpl target;
+        private final int digitBits;
+        private int group;
+        private long bits;
+        private int bitCount;
+
+        DigitPacker(NumberListImpl target, long totalBits) {
+            this.target = target;
+            this.digitBits = Integer.numberOfTrailingZeros(target.base);
+            this.group = (int) (totalBits % digitBits);
+            if (group == 0) {
+                group = digitBits;
+            }
+        }
+
+        void push(int value, int width) {
+            bits = (bits << width) | value;
+            bitCount += width;
+            while (bitCount >= group) {
+                bitCount -= group;
+                int d = (int) (bits >>> bitCount) & ((1 << group) - 1);
+                bits &= (1L << bitCount) - 1;
+                if (d != 0 || target.size > 0) {
+                    target.appendDigit(d);
+                }
+                group = digitBits;
+            }
+        }
+
+        void finish() {
+            if (target.size == 0) {
+                target.appendDigit(0);
+            }
+        }
+    }
+
     /**
      * Returns new <tt>NumberListImpl</tt> which represents the result of
      * additional operation, defined by personal test assignment.<p>
@@ -160,697 +599,2317 @@ public class NumberListImpl implements NumberList {
      * @return result of additional operation.
      */
     public NumberListImpl additionalOperation(NumberList arg) {
-        if (arg == null) {
-            throw new IllegalArgumentException("arg is null");
-        }
-        BigInteger a = this.toBigInteger();
-        BigInteger b;
-        if (arg instanceof NumberListImpl) {
-            b = ((NumberListImpl) arg).toBigInteger();
-        } else {
-            b = listToBigInteger(arg, MAIN_BASE);
-        }
-        BigInteger result = a.and(b);
-        return new NumberListImpl(result, this.base);
+        return and(arg);
     }
 
-    private static BigInteger listToBigInteger(List<Byte> digits, int base) {
-        if (digits == null) {
-            throw new IllegalArgumentException("digits is null");
-        }
-        BigInteger result = BigInteger.ZERO;
-        BigInteger b = BigInteger.valueOf(base);
-        for (Byte boxedDigit: digits) {
-            if (boxedDigit == null) {
-                throw new IllegalArgumentException("Null digit in list");
-            }
-            int d = boxedDigit & 0xFF;
-            if (d < 0 || d >= base) {
-                throw new IllegalArgumentException("Digit " + d + " is out of range for base " + base);
-            }
-            result = result.multiply(b).add(BigInteger.valueOf(d));
-        }
-        return result;
+    /**
+     * Returns new <tt>NumberListImpl</tt> with the sum of this number and
+     * <tt>arg</tt>, in the scale of notation of this list.<p>
+     * <p>
+     * Does not impact the original lists.
+     *
+     * @param arg
+     *     - second summand.
+     *
+     * @return sum of the numbers.
+     */
+    public NumberListImpl sum(NumberList arg) {
+        return fromLimbs(DigitArithmetic.add(toLimbs(), operandLimbs(arg)));
     }
 
     /**
-     * Returns string representation of number, stored in the list
-     * in <b>decimal</b> scale of notation.
+     * Returns new <tt>NumberListImpl</tt> with the difference of this number
+     * and <tt>arg</tt>, in the scale of notation of this list.<p>
+     * <p>
+     * Does not impact the original lists.
      *
-     * @return string representation in <b>decimal</b> scale.
+     * @param arg
+     *     - subtrahend.
+     *
+     * @return difference of the numbers.
+     * @throws ArithmeticException if <tt>arg</tt> is greater than this number.
      */
-    public String toDecimalString() {
-        BigInteger value = toBigInteger();
-        return value.toString(10);
+    public NumberListImpl subtract(NumberList arg) {
+        return fromLimbs(DigitArithmetic.subtract(toLimbs(), operandLimbs(arg)));
     }
 
-    @Override
-    public String toString() {
-        if (size == 0) {
-            return "";
-        }
-        StringBuilder sb = new StringBuilder(size);
-        Node current = head;
-        for (int i = 0; i < size; i++) {
-            int d = current.value & 0xFF;
-            char ch = Character.forDigit(d, base);
-            if (ch == -1) {
-                throw new IllegalStateException("Invalid digit " + d + " for base " + base);
-            }
-            sb.append(Character.toUpperCase(ch));
-            current = current.next;
-        }
-        return sb.toString();
+    /**
+     * Returns new <tt>NumberListImpl</tt> with the product of this number
+     * and <tt>arg</tt>, in the scale of notation of this list. Long numbers
+     * are multiplied by the Karatsuba method.<p>
+     * <p>
+     * Does not impact the original lists.
+     *
+     * @param arg
+     *     - second factor.
+     *
+     * @return product of the numbers.
+     */
+    public NumberListImpl multiply(NumberList arg) {
+        return fromLimbs(DigitArithmetic.multiply(toLimbs(), operandLimbs(arg)));
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) {
-            return true;
-        }
-        if (!(o instanceof List)) {
-            return false;
-        }
-        List<?> other = (List<?>) o;
-        if (other.size() != this.size) {
-            return false;
-        }
-        Iterator<Byte> it1 = this.iterator();
-        Iterator<?> it2 = other.iterator();
-        while (it1.hasNext() && it2.hasNext()) {
-            Object e1 = it1.next();
-            Object e2 = it2.next();
-            if (e1 == null ? e2 != null : !e1.equals(e2)) {
-                return false;
-            }
-        }
-        return !it1.hasNext() && !it2.hasNext();
+    /**
+     * Returns new <tt>NumberListImpl</tt> with the integer quotient of this
+     * number and <tt>arg</tt>, in the scale of notation of this list.<p>
+     * <p>
+     * Does not impact the original lists.
+     *
+     * @param arg
+     *     - divisor.
+     *
+     * @return quotient rounded down.
+     * @throws ArithmeticException if <tt>arg</tt> is zero.
+     */
+    public NumberListImpl divide(NumberList arg) {
+        return fromLimbs(DigitArithmetic.divideAndRemainder(toLimbs(), operandLimbs(arg))[0]);
     }
 
-    @Override
-    public int size() {
-        return size;
+    /**
+     * Returns new <tt>NumberListImpl</tt> with the remainder of dividing this
+     * number by <tt>arg</tt>, in the scale of notation of this list.<p>
+     * <p>
+     * Does not impact the original lists.
+     *
+     * @param arg
+     *     - divisor.
+     *
+     * @return remainder of the division.
+     * @throws ArithmeticException if <tt>arg</tt> is zero.
+     */
+    public NumberListImpl mod(NumberList arg) {
+        return fromLimbs(DigitArithmetic.divideAndRemainder(toLimbs(), operandLimbs(arg))[1]);
     }
 
-    @Override
-    public boolean isEmpty() {
-        return size == 0;
+    /**
+     * Returns new <tt>NumberListImpl</tt> with the bitwise AND of this
+     * number and <tt>arg</tt>, in the scale of notation of this list.<p>
+     * <p>
+     * Does not impact the original lists.
+     *
+     * @param arg
+     *     - second operand.
+     *
+     * @return <tt>this & arg</tt>.
+     */
+    public NumberListImpl and(NumberList arg) {
+        return bitwise(BitwiseLanes.Operation.AND, arg);
     }
 
-    @Override
-    public boolean contains(Object o) {
-        if (size == 0) {
-            return false;
-        }
-        if (!(o instanceof Byte)) {
-            return false;
-        }
-        byte target = ((Byte) o).byteValue();
-        Node current = head;
-        for (int i = 0; i < size; i++) {
-            if (current.value == target) {
-                return true;
-            }
-            current = current.next;
-        }
-        return false;
+    /**
+     * Returns new <tt>NumberListImpl</tt> with the bitwise OR of this
+     * number and <tt>arg</tt>, in the scale of notation of this list.<p>
+     * <p>
+     * Does not impact the original lists.
+     *
+     * @param arg
+     *     - second operand.
+     *
+     * @return <tt>this | arg</tt>.
+     */
+    public NumberListImpl or(NumberList arg) {
+        return bitwise(BitwiseLanes.Operation.OR, arg);
     }
 
-    @Override
-    public Iterator<Byte> iterator() {
-        return new Iterator<Byte>() {
-            private Node current = head;
-            private int remaining = size;
+    /**
+     * Returns new <tt>NumberListImpl</tt> with the bitwise exclusive OR of
+     * this number and <tt>arg</tt>, in the scale of notation of this list.<p>
+     * <p>
+     * Does not impact the original lists.
+     *
+     * @param arg
+     *     - second operand.
+     *
+     * @return <tt>this ^ arg</tt>.
+     */
+    public NumberListImpl xor(NumberList arg) {
+        return bitwise(BitwiseLanes.Operation.XOR, arg);
+    }
 
-            @Override
-            public boolean hasNext() {
-                return remaining > 0;
-            }
+    /**
+     * Returns new <tt>NumberListImpl</tt> with the bits of this number that
+     * are not set in <tt>arg</tt>, in the scale of notation of this list.<p>
+     * <p>
+     * Does not impact the original lists.
+     *
+     * @param arg
+     *     - second operand.
+     *
+     * @return <tt>this & ~arg</tt>.
+     */
+    public NumberListImpl andNot(NumberList arg) {
+        return bitwise(BitwiseLanes.Operation.AND_NOT, arg);
+    }
 
-            @Override
-            public Byte next() {
-                if (!hasNext()) {
-                    throw new java.util.NoSuchElementException();
-                }
-                byte v = current.value;
-                current = current.next;
-                remaining--;
-                return v;
+    /**
+     * Replaces this number with the bitwise AND of this number and
+     * <tt>arg</tt>, see {@link #andInto}.
+     *
+     * @param arg
+     *     - second operand.
+     */
+    public void andInPlace(NumberList arg) {
+        andInto(this, arg, this);
+    }
+
+    /**
+     * Stores the bitwise AND of <tt>a</tt> and <tt>b</tt> into
+     * <tt>dest</tt>, in the scale of notation of <tt>dest</tt>.<p>
+     * <p>
+     * The digits are combined a word at a time and written over the
+     * existing nodes of <tt>dest</tt>, and leading zeros are removed in
+     * place, so if both operands are
+     * <tt>NumberListImpl</tt> in the base of <tt>dest</tt> and
+     * <tt>dest</tt> has room for the result, nothing is allocated.
+     * <tt>dest</tt> may be one of the operands.
+     *
+     * @param a
+     *     - first operand.
+     * @param b
+     *     - second operand.
+     * @param dest
+     *     - list to store the result into.
+     */
+    public static void andInto(NumberList a, NumberList b, NumberListImpl dest) {
+        if (a == null || b == null) {
+            throw new IllegalArgumentException("arg is null");
+        }
+        if (dest == null) {
+            throw new IllegalArgumentException("dest is null");
+        }
+        if (b == dest) {
+            NumberList t = a;
+            a = b;
+            b = t;
+        }
+        NumberListImpl x = dest.inSameBase(a);
+        NumberListImpl y = dest.inSameBase(b);
+        int length = Math.min(x.size, y.size);
+        if (x == dest) {
+            // keep the digits of dest that have a pair in y
+            dest.removeRange(0, dest.size - length);
+            dest.beforeWrite();
+        } else {
+            dest.resize(length);
+        }
+        if (length > 0) {
+            Cursor target = dest.new Cursor(0);
+            Cursor left = x.new Cursor(x.size - length);
+            Cursor right = y.new Cursor(y.size - length);
+            int digitsPerWord = dest.wordMask + 1;
+            for (int done = 0; done < length; done += digitsPerWord) {
+                int count = Math.min(digitsPerWord, length - done);
+                target.write(left.read(count) & right.read(count), count);
             }
+        }
+        dest.trimLeadingZeros();
+    }
 
-            @Override
-            public void remove() {
-                throw new UnsupportedOperationException("remove");
+    /**
+     * Returns <tt>arg</tt> itself if it is a <tt>NumberListImpl</tt> in
+     * the base of this list, otherwise a converted copy.
+     */
+    private NumberListImpl inSameBase(NumberList arg) {
+        if (arg instanceof ConcurrentNumberList) {
+            arg = ((ConcurrentNumberList) arg).snapshot();
+        }
+        if (arg instanceof NumberListImpl) {
+            NumberListImpl list = (NumberListImpl) arg;
+            if (list.base == base) {
+                return list;
+            }
+            if (Integer.bitCount(list.base) == 1 && Integer.bitCount(base) == 1) {
+                return list.regroupDigits(base);
             }
-        };
+            return new NumberListImpl(list.toBigInteger(), base);
+        }
+        long[] lanes = digitLanes(arg, 0);
+        return fromLanes(lanes, lanes.length);
     }
 
-    @Override
-    public Object[] toArray() {
-        Object[] arr = new Object[size];
-        Node current = head;
-        for (int i = 0; i < size; i++) {
-            arr[i] = Byte.valueOf(current.value);
-            current = current.next;
+    /**
+     * Makes the list <tt>newSize</tt> digits long for the caller to
+     * overwrite every digit. Existing nodes are reused as they are, so the
+     * values of the digits are undefined.
+     */
+    private void resize(int newSize) {
+        beforeWrite();
+        modCount++;
+        origin = 0;
+        if (!truncate(newSize)) {
+            while (size < newSize) {
+                appendDigit(0);
+            }
         }
-        return arr;
     }
 
-    @Override
-    public <T> T[] toArray(T[] a) {
-        return null;
+    /**
+     * Removes leading zeros, leaving a single zero digit for zero.
+     */
+    private void trimLeadingZeros() {
+        int zeros = 0;
+        if (size > 0) {
+            Cursor cursor = new Cursor(0);
+            while (zeros < size - 1 && cursor.digit() == 0) {
+                zeros++;
+                cursor.next();
+            }
+        }
+        removeRange(0, zeros);
+        if (size == 0) {
+            appendDigit(0);
+        }
     }
 
-    @Override
-    public boolean add(Byte e) {
-        if (e == null) {
-            throw new NullPointerException("null element");
+    /**
+     * Packs both numbers into lanes and combines them into the lanes of
+     * this number, which are a temporary copy anyway.
+     */
+    private NumberListImpl bitwise(BitwiseLanes.Operation op, NumberList arg) {
+        long[] a = toLanes(0);
+        long[] b = operandLanes(arg, (op == BitwiseLanes.Operation.AND) ? 0 : a.length);
+        int length;
+        if (op == BitwiseLanes.Operation.AND) {
+            length = Math.min(a.length, b.length);
+        } else if (op == BitwiseLanes.Operation.AND_NOT) {
+            length = a.length;
+        } else {
+            length = b.length;
+            if (a.length < length) {
+                a = Arrays.copyOf(a, length);
+            }
         }
-        byte digit = e.byteValue();
-        checkDigitRange(digit);
-        appendNode(digit);
-        return true;
+        BitwiseLanes.apply(op, a, b, a, length);
+        return fromLanes(a, length);
     }
 
-    @Override
-    public boolean remove(Object o) {
-        if (size == 0) {
-            return false;
+    private long[] operandLanes(NumberList arg, int minLength) {
+        if (arg == null) {
+            throw new IllegalArgumentException("arg is null");
         }
-        if (!(o instanceof Byte)) {
-            return false;
+        if (arg instanceof ConcurrentNumberList) {
+            arg = ((ConcurrentNumberList) arg).snapshot();
         }
-        byte target = ((Byte) o).byteValue();
-        Node current = head;
-        Node prev = tail;
-        for (int i = 0; i < size; i++) {
-            if (current.value == target) {
-                removeNode(prev, current);
-                return true;
-            }
-            prev = current;
-            current = current.next;
+        if (arg instanceof NumberListImpl) {
+            return ((NumberListImpl) arg).toLanes(minLength);
         }
-        return false;
+        return digitLanes(arg, minLength);
     }
 
-    @Override
-    public boolean containsAll(Collection<?> c) {
-        if (c == null) {
-            throw new NullPointerException("collection is null");
-        }
-        for (Object o: c) {
-            if (!contains(o)) {
-                return false;
+    /**
+     * Packs the digits of a list of another type, taken as digits in
+     * <tt>MAIN_BASE</tt>, into lanes like {@link #toLanes} does, at least
+     * <tt>minLength</tt> of them. Every digit goes straight into its bits of
+     * a lane, so no <tt>BigInteger</tt> is built.
+     */
+    private static long[] digitLanes(NumberList arg, int minLength) {
+        int digitBits = Integer.numberOfTrailingZeros(MAIN_BASE);
+        long position = (long) arg.size() * digitBits;
+        long[] lanes = new long[Math.max(minLength, (int) ((position + Long.SIZE - 1) / Long.SIZE))];
+        for (Byte boxedDigit: arg) {
+            if (boxedDigit == null) {
+                throw new IllegalArgumentException("Null digit in list");
+            }
+            int digit = boxedDigit & 0xFF;
+            if (digit >= MAIN_BASE) {
+                throw new IllegalArgumentException("Digit " + digit + " is out of range for base " + MAIN_BASE);
+            }
+            position -= digitBits;
+            if (position < 0) {
+                throw new ConcurrentModificationException();
             }
+            lanes[(int) (position >>> 6)] |= (long) digit << (position & (Long.SIZE - 1));
         }
-        return true;
+        if (position != 0) {
+            throw new ConcurrentModificationException();
+        }
+        return lanes;
     }
 
-    @Override
-    public boolean addAll(Collection<? extends Byte> c) {
-        if (c == null) {
-            throw new NullPointerException("collection is null");
-        }
-        boolean modified = false;
-        for (Byte b: c) {
-            add(b);
-            modified = true;
+    private int[] operandLimbs(NumberList arg) {
+        return limbsOf(operandLanes(arg, 0));
+    }
+
+    private int[] toLimbs() {
+        return limbsOf(toLanes(0));
+    }
+
+    private NumberListImpl fromLimbs(int[] limbs) {
+        long[] lanes = new long[(limbs.length + 1) / 2];
+        for (int i = 0; i < limbs.length; i++) {
+            lanes[i >>> 1] |= (limbs[i] & 0xFFFF_FFFFL) << ((i & 1) * Integer.SIZE);
         }
-        return modified;
+        return fromLanes(lanes, lanes.length);
     }
 
-    @Override
-    public boolean addAll(int index, Collection<? extends Byte> c) {
-        if (c == null) {
-            throw new NullPointerException("collection is null");
+    private static int[] limbsOf(long[] lanes) {
+        int[] limbs = new int[lanes.length * 2];
+        for (int i = 0; i < lanes.length; i++) {
+            limbs[2 * i] = (int) lanes[i];
+            limbs[2 * i + 1] = (int) (lanes[i] >>> Integer.SIZE);
         }
-        if (index < 0 || index > size) {
-            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return DigitArithmetic.trim(limbs, limbs.length);
+    }
+
+    /**
+     * Returns the number as 64-bit lanes, the least significant first, at
+     * least <tt>minLength</tt> of them. If every digit fills its slot in the
+     * node words exactly (bases 2, 4 and 16), whole words are moved into
+     * the lanes with their digit order reversed.
+     */
+    private long[] toLanes(int minLength) {
+        int digitBits = 1 << bitShift;
+        if (base != 1 << digitBits) {
+            return lanesOf(toBigInteger(), minLength);
+        }
+        LaneWriter writer = new LaneWriter(Math.max(minLength, (int) (((long) size * digitBits + Long.SIZE - 1) / Long.SIZE)));
+        if (size > 0) {
+            // least significant digits first: physical positions backwards
+            // from the one before the origin, then from the end of the ring
+            writeLanes(writer, 0, origin);
+            writeLanes(writer, origin, size);
+        }
+        return writer.finish();
+    }
+
+    /**
+     * Writes the digits at physical positions <tt>[from, to)</tt> to the
+     * lanes, the last one first.
+     */
+    private void writeLanes(LaneWriter writer, int from, int to) {
+        if (from == to) {
+            return;
         }
-        boolean modified = false;
-        int currentIndex = index;
-        for (Byte b: c) {
-            add(currentIndex++, b);
-            modified = true;
+        int digitBits = 1 << bitShift;
+        int digitsPerWord = 1 << wordShift;
+        for (int n = nodeIndexOf(to - 1); n >= 0 && starts[n] + nodes[n].count > from; n--) {
+            Node node = nodes[n];
+            int low = Math.max(from, starts[n]) - starts[n];
+            int high = Math.min(to, starts[n] + node.count) - starts[n];
+            for (int w = (high - 1) >>> wordShift; w >= low >>> wordShift; w--) {
+                int first = Math.max(low, w << wordShift) - (w << wordShift);
+                int end = Math.min(high, (w + 1) << wordShift) - (w << wordShift);
+                long bits = reverseDigits(node.words[w]) >>> ((digitsPerWord - end) * digitBits);
+                writer.put(bits, (end - first) * digitBits);
+            }
         }
-        return modified;
     }
 
-    @Override
-    public boolean removeAll(Collection<?> c) {
-        if (c == null) {
-            throw new NullPointerException("collection is null");
-        }
-        if (size == 0) {
-            return false;
+    /**
+     * Collects bit groups into lanes starting from the least significant
+     * bit.
+     */
+    private static final class LaneWriter {
+        private final long[] lanes;
+        private int index;
+        private long lane;
+        private int bitCount;
+
+        LaneWriter(int length) {
+            lanes = new long[length];
+        }
+
+        /**
+         * Appends the lowest <tt>width</tt> bits of <tt>bits</tt> above the
+         * ones written so far.
+         */
+        void put(long bits, int width) {
+            if (width < Long.SIZE) {
+                bits &= (1L << width) - 1;
+            }
+            lane |= bits << bitCount;
+            bitCount += width;
+            if (bitCount >= Long.SIZE) {
+                lanes[index++] = lane;
+                bitCount -= Long.SIZE;
+                lane = (bitCount == 0) ? 0 : bits >>> (width - bitCount);
+            }
         }
-        boolean modified = false;
-        Node current = head;
-        Node prev = tail;
-        int visited = 0;
-        int originalSize = size;
-        while (visited < originalSize && size > 0) {
-            Node next = current.next;
-            if (c.contains(Byte.valueOf(current.value))) {
-                removeNode(prev, current);
-                modified = true;
-            } else {
-                prev = current;
+
+        long[] finish() {
+            if (bitCount > 0) {
+                lanes[index] = lane;
             }
-            current = next;
-            visited++;
+            return lanes;
         }
-        return modified;
     }
 
-    @Override
-    public boolean retainAll(Collection<?> c) {
-        if (c == null) {
-            throw new NullPointerException("collection is null");
+    /**
+     * Builds a list in the base of this one from the first <tt>length</tt>
+     * 64-bit lanes, the least significant first. Fills the node words
+     * directly, see {@link #toLanes}.
+     */
+    private NumberListImpl fromLanes(long[] lanes, int length) {
+        while (length > 0 && lanes[length - 1] == 0) {
+            length--;
+        }
+        int digitBits = 1 << bitShift;
+        if (base != 1 << digitBits) {
+            byte[] magnitude = new byte[length * Long.BYTES];
+            for (int i = 0; i < magnitude.length; i++) {
+                magnitude[magnitude.length - 1 - i] = (byte) (lanes[i >>> 3] >>> ((i & 7) << 3));
+            }
+            return new NumberListImpl(new BigInteger(1, magnitude), base);
         }
-        if (size == 0) {
-            return false;
+        NumberListImpl result = new NumberListImpl();
+        result.setBase(base);
+        if (length == 0) {
+            result.appendDigit(0);
+            return result;
         }
-        boolean modified = false;
-        Node current = head;
-        Node prev = tail;
-        int visited = 0;
-        int originalSize = size;
-        while (visited < originalSize && size > 0) {
-            Node next = current.next;
-            if (!c.contains(Byte.valueOf(current.value))) {
-                removeNode(prev, current);
-                modified = true;
-            } else {
-                prev = current;
+        long bitLength = (long) length * Long.SIZE - Long.numberOfLeadingZeros(lanes[length - 1]);
+        int digits = (int) ((bitLength + digitBits - 1) / digitBits);
+        int digitsPerWord = 1 << wordShift;
+        for (int position = 0; position < digits; ) {
+            Node node = result.newNode();
+            int count = Math.min(chunkCapacity, digits - position);
+            for (int w = 0; w << wordShift < count; w++) {
+                int inWord = Math.min(digitsPerWord, count - (w << wordShift));
+                // digits position..position + inWord - 1, the last one lowest
+                long low = (long) (digits - position - inWord) * digitBits;
+                long bits = bitsAt(lanes, length, low, inWord * digitBits);
+                node.words[w] = reverseDigits(bits << ((digitsPerWord - inWord) * digitBits));
+                position += inWord;
             }
-            current = next;
-            visited++;
+            node.count = count;
+            result.linkNode(result.nodeCount, node);
+            result.size += count;
         }
-        return modified;
+        result.modCount++;
+        return result;
     }
 
-    @Override
-    public void clear() {
-        head = null;
-        tail = null;
-        size = 0;
+    /**
+     * @return <tt>width</tt> bits of the lanes starting at bit <tt>low</tt>.
+     */
+    private static long bitsAt(long[] lanes, int length, long low, int width) {
+        int index = (int) (low >>> 6);
+        int shift = (int) (low & (Long.SIZE - 1));
+        long bits = lanes[index] >>> shift;
+        if (shift > 0 && shift + width > Long.SIZE && index + 1 < length) {
+            bits |= lanes[index + 1] << (Long.SIZE - shift);
+        }
+        return (width < Long.SIZE) ? bits & ((1L << width) - 1) : bits;
     }
 
-    @Override
-    public Byte get(int index) {
-        Node node = nodeAt(index);
-        return Byte.valueOf(node.value);
+    /**
+     * Reverses the order of the digits in a word while keeping the bits of
+     * every digit in order.
+     */
+    private long reverseDigits(long word) {
+        long reversed = Long.reverse(word);
+        for (int s = 0; s < bitShift; s++) {
+            int width = 1 << s;
+            long mask = DIGIT_SWAP_MASKS[s];
+            reversed = ((reversed & mask) << width) | ((reversed >>> width) & mask);
+        }
+        return reversed;
     }
 
-    @Override
-    public Byte set(int index, Byte element) {
-        if (element == null) {
-            throw new NullPointerException("null element");
+    private static long[] lanesOf(BigInteger value, int minLength) {
+        byte[] magnitude = value.toByteArray();
+        long[] lanes = new long[Math.max(minLength, (magnitude.length + Long.BYTES - 1) / Long.BYTES)];
+        for (int i = 0; i < magnitude.length; i++) {
+            lanes[i >>> 3] |= (magnitude[magnitude.length - 1 - i] & 0xFFL) << ((i & 7) << 3);
         }
-        byte digit = element.byteValue();
-        checkDigitRange(digit);
-        Node node = nodeAt(index);
-        byte old = node.value;
-        node.value = digit;
-        return Byte.valueOf(old);
+        return lanes;
     }
 
-    @Override
-    public void add(int index, Byte element) {
-        if (element == null) {
-            throw new NullPointerException("null element");
-        }
-        if (index < 0 || index > size) {
-            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
-        }
-        byte digit = element.byteValue();
-        checkDigitRange(digit);
-        if (size == 0) {
-            appendNode(digit);
-            return;
+    /**
+     * Builds the number from <tt>count</tt> digits, the most significant
+     * first. Digits of a power of two base are packed straight into the
+     * bytes of the magnitude. Digits of other bases are gathered into
+     * <tt>long</tt> leaves of as many digits as fit, and the leaves are
+     * joined by divide and conquer. Both ways take close to linear time
+     * instead of a multiplication per digit.
+     */
+    private static BigInteger digitsToBigInteger(PrimitiveIterator.OfInt digits, int count, int base) {
+        if (count == 0) {
+            return BigInteger.ZERO;
         }
-        if (index == size) {
-            appendNode(digit);
-            return;
+        if (Integer.bitCount(base) == 1) {
+            int bits = Integer.numberOfTrailingZeros(base);
+            long totalBits = (long) count * bits;
+            byte[] magnitude = new byte[(int) ((totalBits + 7) >>> 3)];
+            int acc = 0;
+            int accBits = (int) (magnitude.length * 8L - totalBits);
+            int position = 0;
+            for (int i = 0; i < count; i++) {
+                acc = (acc << bits) | digits.nextInt();
+                accBits += bits;
+                if (accBits >= Byte.SIZE) {
+                    accBits -= Byte.SIZE;
+                    magnitude[position++] = (byte) (acc >>> accBits);
+                    acc &= (1 << accBits) - 1;
+                }
+            }
+            return new BigInteger(1, magnitude);
+        }
+        long radix = base;
+        int leafDigits = 1;
+        while (radix <= Long.MAX_VALUE / base) {
+            radix *= base;
+            leafDigits++;
+        }
+        int leafCount = (count + leafDigits - 1) / leafDigits;
+        long[] leaves = new long[leafCount];
+        int first = count - (leafCount - 1) * leafDigits;
+        for (int i = 0; i < leafCount; i++) {
+            long leaf = 0;
+            for (int k = (i == 0) ? first : leafDigits; k > 0; k--) {
+                leaf = leaf * base + digits.nextInt();
+            }
+            leaves[i] = leaf;
         }
-        Node newNode = new Node(digit);
-        if (index == 0) {
-            newNode.next = head;
-            head = newNode;
-            tail.next = head;
-            size++;
-            return;
+        return DecimalConversion.combine(leaves, 0, leafCount,
+                DecimalConversion.powers(BigInteger.valueOf(radix), leafCount));
+    }
+
+    /**
+     * Returns string representation of number, stored in the list
+     * in <b>decimal</b> scale of notation.
+     *
+     * @return string representation in <b>decimal</b> scale.
+     */
+    public String toDecimalString() {
+        String decimal = cachedDecimal;
+        if (decimal == null) {
+            decimal = DecimalConversion.toString(toBigInteger());
+            if (size <= cacheLimit) {
+                cachedDecimal = decimal;
+            }
         }
-        Node prev = nodeAt(index - 1);
-        newNode.next = prev.next;
-        prev.next = newNode;
-        size++;
+        return decimal;
     }
 
     @Override
-    public Byte remove(int index) {
-        if (index < 0 || index >= size) {
-            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
-        }
-        if (size == 1) {
-            byte old = head.value;
-            clear();
-            return Byte.valueOf(old);
-        }
-        if (index == 0) {
-            byte old = head.value;
-            head = head.next;
-            tail.next = head;
-            size--;
-            return Byte.valueOf(old);
-        }
-        Node prev = nodeAt(index - 1);
-        Node toRemove = prev.next;
-        byte old = toRemove.value;
-        prev.next = toRemove.next;
-        if (toRemove == tail) {
-            tail = prev;
+    public String toString() {
+        String text = cachedText;
+        if (text == null) {
+            text = render();
+            if (size <= cacheLimit) {
+                cachedText = text;
+            }
         }
-        size--;
-        return Byte.valueOf(old);
+        return text;
     }
 
-    @Override
-    public int indexOf(Object o) {
-        if (!(o instanceof Byte)) {
-            return -1;
+    private String render() {
+        if (size == 0) {
+            return "";
         }
-        byte target = ((Byte) o).byteValue();
-        Node current = head;
+        StringBuilder sb = new StringBuilder(size);
+        Cursor cursor = new Cursor(0);
         for (int i = 0; i < size; i++) {
-            if (current.value == target) {
-                return i;
+            int d = cursor.digit();
+            char ch = Character.forDigit(d, base);
+            if (ch == -1) {
+                throw new IllegalStateException("Invalid digit " + d + " for base " + base);
             }
-            current = current.next;
+            sb.append(Character.toUpperCase(ch));
+            cursor.next();
         }
-        return -1;
+        return sb.toString();
     }
 
     @Override
-    public int lastIndexOf(Object o) {
-        if (!(o instanceof Byte)) {
-            return -1;
-        }
-        byte target = ((Byte) o).byteValue();
-        Node current = head;
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof NumberListImpl) {
+            return sameDigits((NumberListImpl) o);
+        }
+        if (!(o instanceof List)) {
+            return false;
+        }
+        List<?> other = (List<?>) o;
+        if (other.size() != this.size) {
+            return false;
+        }
+        Iterator<Byte> it1 = this.iterator();
+        Iterator<?> it2 = other.iterator();
+        while (it1.hasNext() && it2.hasNext()) {
+            Object e1 = it1.next();
+            Object e2 = it2.next();
+            if (e1 == null ? e2 != null : !e1.equals(e2)) {
+                return false;
+            }
+        }
+        return !it1.hasNext() && !it2.hasNext();
+    }
+
+    /**
+     * Compares digits with another list without boxing them. Lists with
+     * known different hash codes are told apart at once. In lists of the
+     * same base, whole words of packed digits are compared wherever both
+     * cursors are at the start of a full word.
+     */
+    private boolean sameDigits(NumberListImpl other) {
+        if (other.size != size) {
+            return false;
+        }
+        int hash = cachedHash;
+        int otherHash = other.cachedHash;
+        if (hash != 0 && otherHash != 0 && hash != otherHash) {
+            return false;
+        }
+        if (size == 0) {
+            return true;
+        }
+        boolean sameLayout = other.base == base;
+        int wordDigits = wordMask + 1;
+        Cursor a = new Cursor(0);
+        Cursor b = other.new Cursor(0);
+        int i = 0;
+        while (i < size) {
+            if (sameLayout && ((a.offset | b.offset) & wordMask) == 0
+                    && a.node.count - a.offset >= wordDigits && b.node.count - b.offset >= wordDigits) {
+                if (a.node.words[a.offset >>> wordShift] != b.node.words[b.offset >>> wordShift]) {
+                    return false;
+                }
+                a.skip(wordDigits);
+                b.skip(wordDigits);
+                i += wordDigits;
+            } else {
+                if (a.digit() != b.digit()) {
+                    return false;
+                }
+                a.next();
+                b.next();
+                i++;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns hash code as defined by <tt>List.hashCode()</tt>. The value
+     * is cached until the next change; appending a digit updates it in
+     * place.
+     */
+    @Override
+    public int hashCode() {
+        int hash = cachedHash;
+        if (hash == 0 && size > 0) {
+            hash = 1;
+            Cursor cursor = new Cursor(0);
+            for (int i = 0; i < size; i++) {
+                hash = 31 * hash + cursor.digit();
+                cursor.next();
+            }
+            cachedHash = hash;
+        }
+        return (size == 0) ? 1 : hash;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public Iterator<Byte> iterator() {
+        return new ListItr(0);
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] arr = new Object[size];
+        if (size == 0) {
+            return arr;
+        }
+        Cursor cursor = new Cursor(0);
+        for (int i = 0; i < size; i++) {
+            arr[i] = Byte.valueOf((byte) cursor.digit());
+            cursor.next();
+        }
+        return arr;
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return null;
+    }
+
+    @Override
+    public boolean add(Byte e) {
+        if (e == null) {
+            throw new NullPointerException("null element");
+        }
+        byte digit = e.byteValue();
+        checkDigitRange(digit);
+        int hash = (size == 0) ? 1 : cachedHash;
+        beforeWrite();
+        insertAt(size, digit);
+        if (hash != 0) {
+            cachedHash = 31 * hash + digit;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        if (c == null) {
+            throw new NullPointerException("collection is null");
+        }
+        for (Object o: c) {
+            if (!contains(o)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Byte> c) {
+        if (c == null) {
+            throw new NullPointerException("collection is null");
+        }
+        if (c instanceof NumberListImpl) {
+            NumberListImpl other = (NumberListImpl) c;
+            int count = other.size;
+            if (count == 0) {
+                return false;
+            }
+            beforeWrite();
+            normalize();
+            Cursor cursor = other.new Cursor(0);
+            for (int i = 0; i < count; i++) {
+                appendDigit(cursor.digit());
+                cursor.next();
+            }
+            return true;
+        }
+        boolean modified = false;
+        for (Byte b: c) {
+            add(b);
+            modified = true;
+        }
+        return modified;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Byte> c) {
+        if (c == null) {
+            throw new NullPointerException("collection is null");
+        }
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        boolean modified = false;
+        int currentIndex = index;
+        for (Byte b: c) {
+            add(currentIndex++, b);
+            modified = true;
+        }
+        return modified;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if (c == null) {
+            throw new NullPointerException("collection is null");
+        }
+        return filter(presenceMask(c), false);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if (c == null) {
+            throw new NullPointerException("collection is null");
+        }
+        return filter(presenceMask(c), true);
+    }
+
+    @Override
+    public void clear() {
+        checkNotFrozen();
+        dropCache();
+        if (nodePoolCapacity > 0 && !shared) {
+            // recycling: keep the node index arrays for the next fill too
+            for (int i = 0; i < nodeCount; i++) {
+                releaseNode(nodes[i]);
+            }
+            Arrays.fill(nodes, 0, nodeCount, null);
+        } else {
+            nodes = new Node[INITIAL_NODES];
+            starts = new int[INITIAL_NODES];
+        }
+        shared = false;
+        modCount++;
+        head = null;
+        tail = null;
+        size = 0;
+        nodeCount = 0;
+        validStarts = 0;
+        origin = 0;
+    }
+
+    @Override
+    public Byte get(int index) {
+        return Byte.valueOf(getDigit(index));
+    }
+
+    @Override
+    public Byte set(int index, Byte element) {
+        if (element == null) {
+            throw new NullPointerException("null element");
+        }
+        byte old = getDigit(index);
+        setDigit(index, element.byteValue());
+        return Byte.valueOf(old);
+    }
+
+    @Override
+    public void add(int index, Byte element) {
+        if (element == null) {
+            throw new NullPointerException("null element");
+        }
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        byte digit = element.byteValue();
+        checkDigitRange(digit);
+        beforeWrite();
+        insertAt(index, digit);
+    }
+
+    @Override
+    public Byte remove(int index) {
+        checkElementIndex(index);
+        beforeWrite();
+        modCount++;
+        int position = physicalIndex(index);
+        int nodeIndex = nodeIndexOf(position);
+        Node node = nodes[nodeIndex];
+        byte old = (byte) deleteDigit(node, position - starts[nodeIndex]);
+        countChanged(nodeIndex);
+        size--;
+        if (node.count == 0) {
+            removeNode(nodeIndex);
+        } else {
+            mergeWithNext(nodeIndex);
+        }
+        if (position < origin) {
+            origin--;
+        }
+        if (origin == size) {
+            origin = 0;
+        }
+        return Byte.valueOf(old);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof Byte) || size == 0) {
+            return -1;
+        }
+        int target = ((Byte) o).byteValue();
+        Cursor cursor = new Cursor(0);
+        for (int i = 0; i < size; i++) {
+            if (cursor.digit() == target) {
+                return i;
+            }
+            cursor.next();
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        if (!(o instanceof Byte) || size == 0) {
+            return -1;
+        }
+        int target = ((Byte) o).byteValue();
+        Cursor cursor = new Cursor(0);
         int last = -1;
         for (int i = 0; i < size; i++) {
-            if (current.value == target) {
+            if (cursor.digit() == target) {
                 last = i;
             }
-            current = current.next;
+            cursor.next();
         }
         return last;
     }
 
-    private class ListItr implements ListIterator<Byte> {
-        private int cursor;
-        private int lastRet = -1;
-
-        ListItr(int index) {
-            if (index < 0 || index > size) {
-                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    /**
+     * Keeps a cursor on the next digit, so moving in either direction and
+     * replacing the last digit returned take constant time. After
+     * <tt>add</tt> and <tt>remove</tt> the cursor is looked up again
+     * through the node index.
+     */
+    private class ListItr implements ListIterator<Byte> {
+        private int cursor;
+        private int lastRet = -1;
+        private Cursor position;
+        private Node lastNode;
+        private int lastOffset;
+        private int expectedModCount = modCount;
+
+        ListItr(int index) {
+            if (index < 0 || index > size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            this.cursor = index;
+            reposition();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor != size;
+        }
+
+        @Override
+        public Byte next() {
+            checkForComodification();
+            if (cursor >= size) {
+                throw new java.util.NoSuchElementException();
+            }
+            lastNode = position.node;
+            lastOffset = position.offset;
+            byte elem = (byte) position.digit();
+            position.next();
+            lastRet = cursor;
+            cursor++;
+            return Byte.valueOf(elem);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return cursor != 0;
+        }
+
+        @Override
+        public Byte previous() {
+            checkForComodification();
+            if (cursor <= 0) {
+                throw new java.util.NoSuchElementException();
+            }
+            position.previous();
+            lastNode = position.node;
+            lastOffset = position.offset;
+            cursor--;
+            lastRet = cursor;
+            return Byte.valueOf((byte) position.digit());
+        }
+
+        @Override
+        public int nextIndex() {
+            return cursor;
+        }
+
+        @Override
+        public int previousIndex() {
+            return cursor - 1;
+        }
+
+        @Override
+        public void remove() {
+            if (lastRet < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            NumberListImpl.this.remove(lastRet);
+            if (lastRet < cursor) {
+                cursor--;
+            }
+            lastRet = -1;
+            expectedModCount = modCount;
+            reposition();
+        }
+
+        @Override
+        public void set(Byte e) {
+            if (lastRet < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            if (e == null) {
+                throw new NullPointerException("null element");
+            }
+            byte digit = e.byteValue();
+            checkDigitRange(digit);
+            if (beforeWrite()) {
+                Cursor last = new Cursor(lastRet);
+                lastNode = last.node;
+                lastOffset = last.offset;
+                expectedModCount = modCount;
+                reposition();
+            }
+            putDigit(lastNode, lastOffset, digit);
+        }
+
+        @Override
+        public void add(Byte e) {
+            checkForComodification();
+            if (e == null) {
+                throw new NullPointerException("null element");
+            }
+            byte digit = e.byteValue();
+            checkDigitRange(digit);
+            beforeWrite();
+            insertAt(cursor, digit);
+            cursor++;
+            lastRet = -1;
+            expectedModCount = modCount;
+            reposition();
+        }
+
+        private void reposition() {
+            position = (size == 0) ? null : new Cursor(cursor);
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @Override
+    public ListIterator<Byte> listIterator() {
+        return new ListItr(0);
+    }
+
+    @Override
+    public ListIterator<Byte> listIterator(int index) {
+        return new ListItr(index);
+    }
+
+    @Override
+    public Spliterator<Byte> spliterator() {
+        return new ByteSpliterator(digitSpliterator());
+    }
+
+    /**
+     * Returns a sequential stream of the digits, from the first to the last.
+     * The stream splits into balanced ranges of digits, so its parallel
+     * version scales across cores.
+     *
+     * @return stream of digits.
+     */
+    public IntStream digitStream() {
+        return StreamSupport.intStream(digitSpliterator(), false);
+    }
+
+    private Spliterator.OfInt digitSpliterator() {
+        repairStarts();
+        return new DigitSpliterator(0, size, modCount);
+    }
+
+    /**
+     * Spliterator over the digits <tt>[index, fence)</tt>. Splitting halves
+     * the range. The node index is repaired before the first spliterator is
+     * created, so spliterators traversed in parallel only read it.
+     */
+    private final class DigitSpliterator implements Spliterator.OfInt {
+        private int index;
+        private final int fence;
+        private final int expectedModCount;
+        private Cursor cursor;
+
+        DigitSpliterator(int index, int fence, int expectedModCount) {
+            this.index = index;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (action == null) {
+                throw new NullPointerException("action is null");
+            }
+            if (index >= fence) {
+                return false;
+            }
+            checkForComodification();
+            if (cursor == null) {
+                cursor = new Cursor(index);
+            }
+            int digit = cursor.digit();
+            cursor.next();
+            index++;
+            action.accept(digit);
+            checkForComodification();
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            if (action == null) {
+                throw new NullPointerException("action is null");
+            }
+            if (index >= fence) {
+                return;
+            }
+            checkForComodification();
+            Cursor digits = (cursor == null) ? new Cursor(index) : cursor;
+            for (int i = index; i < fence; i++) {
+                action.accept(digits.digit());
+                digits.next();
+            }
+            index = fence;
+            cursor = null;
+            checkForComodification();
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            int middle = (index + fence) >>> 1;
+            if (middle <= index) {
+                return null;
+            }
+            DigitSpliterator prefix = new DigitSpliterator(index, middle, expectedModCount);
+            prefix.cursor = cursor;
+            index = middle;
+            cursor = null;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED | Spliterator.NONNULL
+                    | (frozen ? Spliterator.IMMUTABLE : 0);
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Boxed view of a digit spliterator. Digits are boxed through
+     * <tt>Byte.valueOf</tt>, which never allocates.
+     */
+    private static final class ByteSpliterator implements Spliterator<Byte> {
+        private final Spliterator.OfInt digits;
+
+        ByteSpliterator(Spliterator.OfInt digits) {
+            this.digits = digits;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Byte> action) {
+            return digits.tryAdvance((int d) -> action.accept(Byte.valueOf((byte) d)));
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Byte> action) {
+            digits.forEachRemaining((int d) -> action.accept(Byte.valueOf((byte) d)));
+        }
+
+        @Override
+        public Spliterator<Byte> trySplit() {
+            Spliterator.OfInt prefix = digits.trySplit();
+            return (prefix == null) ? null : new ByteSpliterator(prefix);
+        }
+
+        @Override
+        public long estimateSize() {
+            return digits.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return digits.characteristics();
+        }
+    }
+
+    @Override
+    public List<Byte> subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + size);
+        }
+        return new SubList(fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * View of the digits <tt>[offset, offset + size)</tt>. Every call goes
+     * to the list itself, so changes are visible both ways; changes made
+     * past the view make it fail fast.
+     */
+    private class SubList extends AbstractList<Byte> implements RandomAccess {
+        private final int offset;
+        private int size;
+        private int expectedModCount = NumberListImpl.this.modCount;
+
+        SubList(int offset, int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public Byte get(int index) {
+            Objects.checkIndex(index, size);
+            checkForComodification();
+            return Byte.valueOf(getDigit(offset + index));
+        }
+
+        @Override
+        public Byte set(int index, Byte element) {
+            Objects.checkIndex(index, size);
+            checkForComodification();
+            Byte old = NumberListImpl.this.set(offset + index, element);
+            expectedModCount = NumberListImpl.this.modCount;
+            return old;
+        }
+
+        @Override
+        public int size() {
+            checkForComodification();
+            return size;
+        }
+
+        @Override
+        public void add(int index, Byte element) {
+            Objects.checkIndex(index, size + 1);
+            checkForComodification();
+            NumberListImpl.this.add(offset + index, element);
+            expectedModCount = NumberListImpl.this.modCount;
+            modCount++;
+            size++;
+        }
+
+        @Override
+        public Byte remove(int index) {
+            Objects.checkIndex(index, size);
+            checkForComodification();
+            Byte old = NumberListImpl.this.remove(offset + index);
+            expectedModCount = NumberListImpl.this.modCount;
+            modCount++;
+            size--;
+            return old;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            checkForComodification();
+            NumberListImpl.this.removeRange(offset + fromIndex, offset + toIndex);
+            expectedModCount = NumberListImpl.this.modCount;
+            modCount++;
+            size -= toIndex - fromIndex;
+        }
+
+        private void checkForComodification() {
+            if (NumberListImpl.this.modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @Override
+    public boolean swap(int index1, int index2) {
+        if (index1 < 0 || index1 >= size || index2 < 0 || index2 >= size) {
+            return false;
+        }
+        if (index1 == index2) {
+            return true;
+        }
+        beforeWrite();
+        Cursor c1 = new Cursor(index1);
+        Cursor c2 = new Cursor(index2);
+        int tmp = c1.digit();
+        c1.setDigit(c2.digit());
+        c2.setDigit(tmp);
+        return true;
+    }
+
+    @Override
+    public void sortAscending() {
+        countingSort(true);
+    }
+
+    @Override
+    public void sortDescending() {
+        countingSort(false);
+    }
+
+    @Override
+    public void shiftLeft() {
+        rotate(-1);
+    }
+
+    @Override
+    public void shiftRight() {
+        rotate(1);
+    }
+
+    /**
+     * Performs cyclic shift of the list by <tt>distance</tt> positions:
+     * element at index <tt>i</tt> moves to index
+     * <tt>(i + distance) mod size()</tt>. Positive distance shifts the list
+     * right and negative shifts it left, so <tt>rotate(1)</tt> is the same
+     * as <tt>shiftRight()</tt>. Takes constant time for any distance.
+     *
+     * @param distance
+     *     - number of positions to shift by.
+     */
+    public void rotate(int distance) {
+        checkNotFrozen();
+        if (size <= 1) {
+            return;
+        }
+        modCount++;
+        dropCache();
+        int shift = (int) (((long) origin - distance) % size);
+        origin = (shift < 0) ? shift + size : shift;
+    }
+
+    /**
+     * Returns a read-only view of the current digits in constant time. The
+     * view shares nodes with this list, and the list copies them before its
+     * next change, so the view never changes. Once published to another
+     * thread, the view may be read there without locking, including
+     * <tt>toDecimalString</tt>, <tt>changeScale</tt> and
+     * <tt>additionalOperation</tt>.
+     *
+     * @return frozen copy of this list.
+     */
+    public NumberListImpl snapshot() {
+        if (frozen) {
+            return this;
+        }
+        repairStarts();
+        NumberListImpl view = new NumberListImpl();
+        view.setBase(base);
+        view.head = head;
+        view.tail = tail;
+        view.size = size;
+        view.nodes = nodes;
+        view.nodeCount = nodeCount;
+        view.starts = starts;
+        view.validStarts = validStarts;
+        view.origin = origin;
+        view.cachedValue = cachedValue;
+        view.cachedDecimal = cachedDecimal;
+        view.cachedText = cachedText;
+        view.cachedHash = cachedHash;
+        view.frozen = true;
+        shared = true;
+        return view;
+    }
+
+    /**
+     * @return <tt>true</tt> if this list is a snapshot and cannot be
+     *     changed.
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Limits the lists that keep their <tt>BigInteger</tt> value, decimal
+     * string and <tt>toString()</tt> text between changes to those with at
+     * most <tt>digits</tt> digits. 0 turns the cache off. The initial limit
+     * is taken from the <tt>ua.kpi.comsys.test2.cacheLimit</tt> system
+     * property and is unlimited by default.
+     *
+     * @param digits
+     *     - the largest size of a list that caches derived values.
+     */
+    public static void setCacheLimit(int digits) {
+        if (digits < 0) {
+            throw new IllegalArgumentException("Negative cache limit: " + digits);
+        }
+        cacheLimit = digits;
+    }
+
+    /**
+     * @return the largest size of a list that caches derived values.
+     */
+    public static int getCacheLimit() {
+        return cacheLimit;
+    }
+
+    /**
+     * Lets every thread keep up to <tt>nodes</tt> free ring nodes for reuse.
+     * Nodes dropped by <tt>clear</tt>, removals and truncation go to the pool
+     * of the thread that dropped them, and new nodes are taken from it, so
+     * lists that are rebuilt over and over stop allocating. Nodes shared
+     * with snapshots are never reused. 0 turns recycling off, which is the
+     * default unless the <tt>ua.kpi.comsys.test2.nodePoolCapacity</tt>
+     * system property says otherwise.<p>
+     * <p>
+     * Results that are no longer needed give their nodes back only when
+     * they are cleared.
+     *
+     * @param nodes
+     *     - the largest number of free nodes kept by a thread.
+     */
+    public static void setNodePoolCapacity(int nodes) {
+        if (nodes < 0) {
+            throw new IllegalArgumentException("Negative pool capacity: " + nodes);
+        }
+        nodePoolCapacity = nodes;
+    }
+
+    /**
+     * @return the largest number of free nodes kept by a thread.
+     */
+    public static int getNodePoolCapacity() {
+        return nodePoolCapacity;
+    }
+
+    /**
+     * Returns the digit at the specified position without boxing it.
+     *
+     * @param index
+     *     - index of the digit.
+     *
+     * @return the digit.
+     */
+    public byte getDigit(int index) {
+        checkElementIndex(index);
+        int position = physicalIndex(index);
+        int nodeIndex = nodeIndexOf(position);
+        return (byte) digitAt(nodes[nodeIndex], position - starts[nodeIndex]);
+    }
+
+    /**
+     * Reads a digit without repairing the node index, for readers that do
+     * not hold a lock and validate the result afterwards. Never writes to
+     * the list.
+     *
+     * @return the digit, or <tt>-1</tt> if it cannot be read this way.
+     */
+    int peekDigit(int index) {
+        if (index < 0 || index >= size || validStarts < nodeCount) {
+            return -1;
+        }
+        int position = physicalIndex(index);
+        int nodeIndex = findNode(position);
+        return digitAt(nodes[nodeIndex], position - starts[nodeIndex]);
+    }
+
+    /**
+     * Copies the digits into a new frozen list that owns its nodes, for
+     * readers that do not hold a lock and validate the copy afterwards.
+     * Never writes to this list. A copy made during a change may be
+     * inconsistent, or fail with an unchecked exception, and must then be
+     * dropped.
+     *
+     * @return frozen copy of this list.
+     */
+    NumberListImpl peekCopy() {
+        int count = nodeCount;
+        Node[] source = nodes;
+        NumberListImpl copy = new NumberListImpl();
+        copy.setBase(base);
+        Node[] copies = new Node[Math.max(count, INITIAL_NODES)];
+        int[] copyStarts = new int[copies.length];
+        int digits = 0;
+        for (int i = 0; i < count; i++) {
+            Node node = source[i];
+            Node c = newNode();
+            System.arraycopy(node.words, 0, c.words, 0, CHUNK_WORDS);
+            c.count = node.count;
+            copyStarts[i] = digits;
+            digits += c.count;
+            copies[i] = c;
+            if (i > 0) {
+                copies[i - 1].next = c;
+            }
+        }
+        if (count > 0) {
+            copy.head = copies[0];
+            copy.tail = copies[count - 1];
+            copy.tail.next = copy.head;
+        }
+        copy.nodes = copies;
+        copy.starts = copyStarts;
+        copy.nodeCount = count;
+        copy.validStarts = count;
+        copy.size = digits;
+        copy.origin = origin;
+        copy.frozen = true;
+        return copy;
+    }
+
+    /**
+     * Replaces the digit at the specified position.
+     *
+     * @param index
+     *     - index of the digit.
+     * @param digit
+     *     - new digit.
+     */
+    public void setDigit(int index, byte digit) {
+        checkDigitRange(digit);
+        checkElementIndex(index);
+        beforeWrite();
+        int position = physicalIndex(index);
+        int nodeIndex = nodeIndexOf(position);
+        putDigit(nodes[nodeIndex], position - starts[nodeIndex], digit);
+    }
+
+    /**
+     * Passes every digit, from the first to the last, to the action.
+     *
+     * @param action
+     *     - action to perform for each digit.
+     */
+    public void forEachDigit(IntConsumer action) {
+        if (action == null) {
+            throw new NullPointerException("action is null");
+        }
+        if (size == 0) {
+            return;
+        }
+        Cursor cursor = new Cursor(0);
+        for (int i = size; i > 0; i--) {
+            action.accept(cursor.digit());
+            cursor.next();
+        }
+    }
+
+    /**
+     * Copies <tt>length</tt> digits starting from index <tt>from</tt> into
+     * the array.
+     *
+     * @param from
+     *     - index of the first digit to copy.
+     * @param dst
+     *     - destination array.
+     * @param offset
+     *     - position in the destination array.
+     * @param length
+     *     - number of digits to copy.
+     */
+    public void copyDigits(int from, byte[] dst, int offset, int length) {
+        Objects.checkFromIndexSize(from, length, size);
+        Objects.checkFromIndexSize(offset, length, dst.length);
+        if (length == 0) {
+            return;
+        }
+        Cursor cursor = new Cursor(from);
+        for (int i = 0; i < length; i++) {
+            dst[offset + i] = (byte) cursor.digit();
+            cursor.next();
+        }
+    }
+
+    /**
+     * Appends <tt>length</tt> digits from the array to the end of the list.
+     * Nothing is appended if any of the digits is out of range.
+     *
+     * @param src
+     *     - source array.
+     * @param offset
+     *     - position of the first digit in the source array.
+     * @param length
+     *     - number of digits to append.
+     */
+    public void appendDigits(byte[] src, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, src.length);
+        for (int i = offset; i < offset + length; i++) {
+            checkDigitRange(src[i]);
+        }
+        beforeWrite();
+        normalize();
+        for (int i = offset; i < offset + length; i++) {
+            appendDigit(src[i]);
+        }
+    }
+
+    /**
+     * Sorts digits by counting how many times every digit occurs and then
+     * writing the runs back into the same nodes.
+     */
+    private void countingSort(boolean ascending) {
+        checkNotFrozen();
+        if (size <= 1) {
+            return;
+        }
+        beforeWrite();
+        modCount++;
+        int[] counts = new int[base];
+        for (int i = 0; i < nodeCount; i++) {
+            Node node = nodes[i];
+            for (int k = 0; k < node.count; k++) {
+                counts[digitAt(node, k)]++;
+            }
+        }
+        origin = 0;
+        int step = ascending ? 1 : -1;
+        int digit = ascending ? 0 : base - 1;
+        int left = counts[digit];
+        for (int i = 0; i < nodeCount; i++) {
+            Node node = nodes[i];
+            for (int k = 0; k < node.count; k++) {
+                while (left == 0) {
+                    digit += step;
+                    left = counts[digit];
+                }
+                putDigit(node, k, digit);
+                left--;
+            }
+        }
+    }
+
+    private void initFromDecimalString(String decimal) {
+        decimal = decimal.trim();
+        BigInteger bi;
+        try {
+            bi = DecimalConversion.parse(decimal);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid decimal number: " + decimal, e);
+        }
+        if (bi.signum() < 0) {
+            throw new IllegalArgumentException("Negative numbers are not supported");
+        }
+        fromBigInteger(bi, this.base);
+    }
+
+    NumberListImpl(BigInteger value, int base) {
+        this();
+        fromBigInteger(value, base);
+    }
+
+    private void fromBigInteger(BigInteger value, int base) {
+        clear();
+        setBase(base);
+        if (value.equals(BigInteger.ZERO)) {
+            appendDigit(0);
+        } else if (Integer.bitCount(base) == 1) {
+            byte[] magnitude = value.toByteArray();
+            DigitPacker packer = new DigitPacker(this, (long) magnitude.length * Byte.SIZE);
+            for (byte b: magnitude) {
+                packer.push(b & 0xFF, Byte.SIZE);
+            }
+            packer.finish();
+        } else {
+            String str = value.toString(base);
+            for (int i = 0; i < str.length(); i++) {
+                char ch = str.charAt(i);
+                int digit = Character.digit(ch, base);
+                if (digit < 0) {
+                    throw new IllegalArgumentException("Invalid digit '" + ch + "' for base " + base);
+                }
+                appendDigit(digit);
+            }
+        }
+        if (size <= cacheLimit) {
+            cachedValue = value;
+        }
+    }
+
+    BigInteger toBigInteger() {
+        BigInteger value = cachedValue;
+        if (value == null) {
+            value = computeBigInteger();
+            if (size <= cacheLimit) {
+                cachedValue = value;
             }
-            this.cursor = index;
         }
+        return value;
+    }
 
-        @Override
-        public boolean hasNext() {
-            return cursor != size;
+    private BigInteger computeBigInteger() {
+        if (size == 0) {
+            return BigInteger.ZERO;
         }
+        Cursor cursor = new Cursor(0);
+        return digitsToBigInteger(new PrimitiveIterator.OfInt() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
 
-        @Override
-        public Byte next() {
-            if (!hasNext()) {
-                throw new java.util.NoSuchElementException();
+            @Override
+            public int nextInt() {
+                int digit = cursor.digit();
+                cursor.next();
+                return digit;
             }
-            Byte elem = get(cursor);
-            lastRet = cursor;
-            cursor++;
-            return elem;
-        }
+        }, size, base);
+    }
 
-        @Override
-        public boolean hasPrevious() {
-            return cursor != 0;
+    /**
+     * Returns a mask with bit <tt>d</tt> set if the collection contains
+     * digit <tt>d</tt>. Only <tt>base</tt> values are possible, so instead of
+     * asking the collection about every digit of the list it is asked about
+     * every possible value once. Digits of another <tt>NumberListImpl</tt>
+     * are collected in a single pass.
+     */
+    private long presenceMask(Collection<?> c) {
+        long full = (base == Long.SIZE) ? -1L : (1L << base) - 1;
+        long mask = 0;
+        if (c instanceof NumberListImpl) {
+            NumberListImpl other = (NumberListImpl) c;
+            Node node = other.head;
+            for (int n = 0; n < other.nodeCount && mask != full; n++, node = node.next) {
+                for (int i = 0; i < node.count; i++) {
+                    mask |= 1L << other.digitAt(node, i);
+                }
+            }
+            return mask & full;
         }
-
-        @Override
-        public Byte previous() {
-            if (!hasPrevious()) {
-                throw new java.util.NoSuchElementException();
+        for (int d = 0; d < base; d++) {
+            if (c.contains(Byte.valueOf((byte) d))) {
+                mask |= 1L << d;
             }
-            cursor--;
-            Byte elem = get(cursor);
-            lastRet = cursor;
-            return elem;
         }
+        return mask;
+    }
 
-        @Override
-        public int nextIndex() {
-            return cursor;
+    /**
+     * Moves the digits whose presence in <tt>mask</tt> equals
+     * <tt>keep</tt> to the front, preserving order, and drops the rest.
+     */
+    private boolean filter(long mask, boolean keep) {
+        checkNotFrozen();
+        if (size == 0) {
+            return false;
         }
-
-        @Override
-        public int previousIndex() {
-            return cursor - 1;
+        long wanted = keep ? mask : ~mask;
+        Cursor read = new Cursor(0);
+        int kept = 0;
+        while (kept < size && (wanted >>> read.digit() & 1) != 0) {
+            read.next();
+            kept++;
         }
-
-        @Override
-        public void remove() {
-            if (lastRet < 0) {
-                throw new IllegalStateException();
-            }
-            NumberListImpl.this.remove(lastRet);
-            if (lastRet < cursor) {
-                cursor--;
-            }
-            lastRet = -1;
+        if (kept == size) {
+            // nothing to drop: leave caches, iterators and snapshots alone
+            return false;
         }
-
-        @Override
-        public void set(Byte e) {
-            if (lastRet < 0) {
-                throw new IllegalStateException();
+        beforeWrite();
+        normalize();
+        read = new Cursor(kept);
+        Cursor write = new Cursor(kept);
+        for (int i = kept; i < size; i++) {
+            int d = read.digit();
+            if ((wanted >>> d & 1) != 0) {
+                write.setDigit(d);
+                write.next();
+                kept++;
             }
-            NumberListImpl.this.set(lastRet, e);
+            read.next();
         }
+        return truncate(kept);
+    }
 
-        @Override
-        public void add(Byte e) {
-            NumberListImpl.this.add(cursor, e);
-            cursor++;
-            lastRet = -1;
-        }
+    /**
+     * Chooses the packing layout for the given base. Every digit gets the
+     * smallest power of two bits that can hold <tt>base - 1</tt>, so digits
+     * never cross a word boundary. Must be called on an empty list only.
+     */
+    private void setBase(int base) {
+        this.base = base;
+        int bits = 1;
+        while ((1 << bits) < base) {
+            bits <<= 1;
+        }
+        this.bitShift = Integer.numberOfTrailingZeros(bits);
+        this.wordShift = 6 - bitShift;
+        this.wordMask = (1 << wordShift) - 1;
+        this.digitMask = (1 << bits) - 1;
+        this.chunkCapacity = CHUNK_WORDS << wordShift;
     }
 
-    @Override
-    public ListIterator<Byte> listIterator() {
-        return new ListItr(0);
+    private int digitAt(Node node, int offset) {
+        return (int) (node.words[offset >>> wordShift] >>> ((offset & wordMask) << bitShift)) & digitMask;
     }
 
-    @Override
-    public ListIterator<Byte> listIterator(int index) {
-        return new ListItr(index);
+    private void putDigit(Node node, int offset, int digit) {
+        int w = offset >>> wordShift;
+        int shift = (offset & wordMask) << bitShift;
+        node.words[w] = (node.words[w] & ~((long) digitMask << shift)) | ((long) digit << shift);
     }
 
-    @Override
-    public List<Byte> subList(int fromIndex, int toIndex) {
-        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
-            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + size);
+    /**
+     * Inserts digit at <tt>offset</tt> of a node which is not full, moving
+     * the following digits of the node one position up.
+     */
+    private void insertDigit(Node node, int offset, int digit) {
+        int bits = 1 << bitShift;
+        long[] words = node.words;
+        int w = offset >>> wordShift;
+        for (int i = node.count >>> wordShift; i > w; i--) {
+            words[i] = (words[i] << bits) | (words[i - 1] >>> (64 - bits));
+        }
+        int shift = (offset & wordMask) << bitShift;
+        long lowMask = shift == 0 ? 0L : -1L >>> (64 - shift);
+        words[w] = ((words[w] & ~lowMask) << bits) | ((long) digit << shift) | (words[w] & lowMask);
+        node.count++;
+    }
+
+    /**
+     * Removes digit at <tt>offset</tt> of a node, moving the following
+     * digits of the node one position down.
+     *
+     * @return removed digit.
+     */
+    private int deleteDigit(Node node, int offset) {
+        int bits = 1 << bitShift;
+        long[] words = node.words;
+        int w = offset >>> wordShift;
+        int shift = (offset & wordMask) << bitShift;
+        int digit = (int) (words[w] >>> shift) & digitMask;
+        long lowMask = shift == 0 ? 0L : -1L >>> (64 - shift);
+        words[w] = ((words[w] >>> bits) & ~lowMask) | (words[w] & lowMask);
+        int last = (node.count - 1) >>> wordShift;
+        for (int i = w; i < last; i++) {
+            words[i] |= words[i + 1] << (64 - bits);
+            words[i + 1] >>>= bits;
+        }
+        node.count--;
+        return digit;
+    }
+
+    /**
+     * Moves the upper half of a full node into a new node linked right
+     * after it. The split point is word aligned, so words are copied as is.
+     */
+    private void splitNode(int nodeIndex) {
+        Node node = nodes[nodeIndex];
+        Node upper = newNode();
+        int half = CHUNK_WORDS / 2;
+        System.arraycopy(node.words, half, upper.words, 0, half);
+        Arrays.fill(node.words, half, CHUNK_WORDS, 0L);
+        upper.count = node.count - (half << wordShift);
+        node.count = half << wordShift;
+        linkNode(nodeIndex + 1, upper);
+    }
+
+    /**
+     * Joins a node with its successor when both together fill less than
+     * half of a node, so that removals do not leave the ring sparse.
+     */
+    private void mergeWithNext(int nodeIndex) {
+        if (nodeIndex == nodeCount - 1) {
+            return;
         }
-        NumberListImpl result = new NumberListImpl();
-        result.base = this.base;
-        if (fromIndex == toIndex) {
-            return result;
+        Node node = nodes[nodeIndex];
+        Node next = nodes[nodeIndex + 1];
+        if (node.count + next.count > chunkCapacity / 2) {
+            return;
         }
-        Node current = nodeAt(fromIndex);
-        for (int i = fromIndex; i < toIndex; i++) {
-            result.add(Byte.valueOf(current.value));
-            current = current.next;
+        for (int i = 0; i < next.count; i++) {
+            putDigit(node, node.count++, digitAt(next, i));
         }
-        return result;
+        removeNode(nodeIndex + 1);
+        countChanged(nodeIndex);
     }
 
-    @Override
-    public boolean swap(int index1, int index2) {
-        if (index1 < 0 || index1 >= size || index2 < 0 || index2 >= size) {
-            return false;
+    /**
+     * Removes the digits <tt>[fromIndex, toIndex)</tt>. Nodes that lie
+     * inside the range are unlinked all at once, digits are moved only in
+     * the two nodes at its ends.
+     */
+    private void removeRange(int fromIndex, int toIndex) {
+        int count = toIndex - fromIndex;
+        if (count == 0) {
+            return;
         }
-        if (index1 == index2) {
-            return true;
+        if (count == size) {
+            clear();
+            return;
+        }
+        beforeWrite();
+        modCount++;
+        int first = physicalIndex(fromIndex);
+        if (first + count <= size) {
+            removePositions(first, count);
+            if (first < origin) {
+                origin -= count;
+            }
+        } else {
+            int wrapped = count - (size - first);
+            removePositions(first, size - first);
+            removePositions(0, wrapped);
+            origin -= wrapped;
+        }
+        if (origin == size) {
+            origin = 0;
         }
-        Node n1 = nodeAt(index1);
-        Node n2 = nodeAt(index2);
-        byte tmp = n1.value;
-        n1.value = n2.value;
-        n2.value = tmp;
-        return true;
     }
 
-    @Override
-    public void sortAscending() {
-        if (size <= 1) {
-            return;
-        }
-        for (int i = 0; i < size; i++) {
-            Node current = head;
-            for (int j = 0; j < size - 1; j++) {
-                Node next = current.next;
-                if ((current.value & 0xFF) > (next.value & 0xFF)) {
-                    byte tmp = current.value;
-                    current.value = next.value;
-                    next.value = tmp;
+    /**
+     * Removes <tt>count</tt> digits starting from position
+     * <tt>first</tt> of the ring, without wrapping around its end.
+     */
+    private void removePositions(int first, int count) {
+        int firstNode = nodeIndexOf(first);
+        int lastNode = nodeIndexOf(first + count - 1);
+        Node node = nodes[firstNode];
+        Node last = nodes[lastNode];
+        int from = first - starts[firstNode];
+        int end = first + count - starts[lastNode];
+        if (firstNode == lastNode) {
+            moveDown(node, end, from);
+        } else {
+            moveDown(node, node.count, from);
+            moveDown(last, end, 0);
+            int dropped = lastNode - firstNode - 1;
+            if (dropped > 0) {
+                for (int n = firstNode + 1; n < lastNode; n++) {
+                    releaseNode(nodes[n]);
                 }
-                current = next;
+                System.arraycopy(nodes, lastNode, nodes, firstNode + 1, nodeCount - lastNode);
+                Arrays.fill(nodes, nodeCount - dropped, nodeCount, null);
+                nodeCount -= dropped;
+                relink(firstNode + 1);
+            }
+            if (last.count == 0) {
+                removeNode(firstNode + 1);
             }
         }
+        countChanged(firstNode);
+        validStarts = Math.min(validStarts, firstNode + 1);
+        size -= count;
+        if (node.count == 0) {
+            removeNode(firstNode);
+            firstNode = Math.max(firstNode - 1, 0);
+        }
+        if (nodeCount > 0) {
+            mergeWithNext(firstNode);
+        }
     }
 
-    @Override
-    public void sortDescending() {
-        if (size <= 1) {
+    /**
+     * Moves the digits of a node starting from offset <tt>from</tt> down to
+     * offset <tt>to</tt>, dropping the digits in between.
+     */
+    private void moveDown(Node node, int from, int to) {
+        int count = node.count;
+        for (int i = from; i < count; i++) {
+            putDigit(node, to + i - from, digitAt(node, i));
+        }
+        for (int i = to + count - from; i < count; i++) {
+            putDigit(node, i, 0);
+        }
+        node.count = to + count - from;
+    }
+
+    /**
+     * Inserts digit so that it gets the given index.
+     */
+    private void insertAt(int index, int digit) {
+        modCount++;
+        int position;
+        if (origin == 0 || index <= size - origin) {
+            position = origin + index;
+        } else {
+            position = index - (size - origin);
+            origin++;
+        }
+        if (position == size) {
+            appendDigit(digit);
             return;
         }
-        for (int i = 0; i < size; i++) {
-            Node current = head;
-            for (int j = 0; j < size - 1; j++) {
-                Node next = current.next;
-                if ((current.value & 0xFF) < (next.value & 0xFF)) {
-                    byte tmp = current.value;
-                    current.value = next.value;
-                    next.value = tmp;
-                }
-                current = next;
+        int nodeIndex = nodeIndexOf(position);
+        Node node = nodes[nodeIndex];
+        int offset = position - starts[nodeIndex];
+        if (node.count == chunkCapacity) {
+            splitNode(nodeIndex);
+            if (offset >= node.count) {
+                offset -= node.count;
+                node = nodes[++nodeIndex];
             }
         }
+        insertDigit(node, offset, digit);
+        countChanged(nodeIndex);
+        size++;
     }
 
-    @Override
-    public void shiftLeft() {
-        if (size <= 1) {
+    /**
+     * @return position in the ring of the digit with the given index.
+     */
+    private int physicalIndex(int index) {
+        return (index < size - origin) ? origin + index : index - (size - origin);
+    }
+
+    /**
+     * Moves the digits inside the ring so that the digit with index 0 is
+     * the first one and <tt>origin</tt> becomes 0. Uses three reversals,
+     * so no memory is allocated.
+     */
+    private void normalize() {
+        if (origin == 0) {
             return;
         }
-        head = head.next;
-        tail = tail.next;
+        modCount++;
+        int first = size - origin;
+        reverse(0, first);
+        reverse(first, size);
+        origin = 0;
+        reverse(0, size);
     }
 
-    @Override
-    public void shiftRight() {
-        if (size <= 1) {
+    private void reverse(int fromIndex, int toIndex) {
+        if (toIndex - fromIndex < 2) {
             return;
         }
-        Node prev = head;
-        while (prev.next != tail) {
-            prev = prev.next;
+        Cursor low = new Cursor(fromIndex);
+        Cursor high = new Cursor(toIndex - 1);
+        for (int i = (toIndex - fromIndex) / 2; i > 0; i--) {
+            int d = low.digit();
+            low.setDigit(high.digit());
+            high.setDigit(d);
+            low.next();
+            high.previous();
         }
-        head = tail;
-        tail = prev;
     }
 
-    private void initFromDecimalString(String decimal) {
-        decimal = decimal.trim();
-        BigInteger bi;
-        try {
-            bi = new BigInteger(decimal);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid decimal number: " + decimal, e);
+    private void appendDigit(int digit) {
+        checkDigitRange((byte) digit);
+        modCount++;
+        if (tail == null || tail.count == chunkCapacity) {
+            linkNode(nodeCount, newNode());
         }
-        if (bi.signum() < 0) {
-            throw new IllegalArgumentException("Negative numbers are not supported");
+        putDigit(tail, tail.count++, digit);
+        size++;
+    }
+
+    /**
+     * Takes a free node from the pool of the current thread if there is one.
+     */
+    private Node newNode() {
+        if (nodePoolCapacity > 0) {
+            NodePool pool = NODE_POOLS.get();
+            Node node = pool.free;
+            if (node != null) {
+                pool.free = node.next;
+                pool.count--;
+                node.next = null;
+                return node;
+            }
         }
-        fromBigInteger(bi, this.base);
+        return new Node();
     }
 
-    private NumberListImpl(BigInteger value, int base) {
-        this();
-        fromBigInteger(value, base);
+    /**
+     * Returns a node that is no longer part of the ring to the pool of the
+     * current thread, unless the pool is full. Nodes shared with snapshots
+     * are never returned, since the snapshots still read them.
+     */
+    private void releaseNode(Node node) {
+        int capacity = nodePoolCapacity;
+        if (capacity == 0 || shared || frozen) {
+            return;
+        }
+        NodePool pool = NODE_POOLS.get();
+        if (pool.count >= capacity) {
+            return;
+        }
+        Arrays.fill(node.words, 0, (node.count + wordMask) >>> wordShift, 0L);
+        node.count = 0;
+        node.next = pool.free;
+        pool.free = node;
+        pool.count++;
     }
 
-    private void fromBigInteger(BigInteger value, int base) {
-        clear();
-        this.base = base;
-        if (value.equals(BigInteger.ZERO)) {
-            appendNode((byte) 0);
+    /**
+     * Inserts a node into the ring so that it gets position
+     * <tt>nodeIndex</tt> in <tt>nodes</tt>.
+     */
+    private void linkNode(int nodeIndex, Node node) {
+        if (nodeCount == nodes.length) {
+            nodes = Arrays.copyOf(nodes, nodeCount * 2);
+            starts = Arrays.copyOf(starts, nodeCount * 2);
+        }
+        System.arraycopy(nodes, nodeIndex, nodes, nodeIndex + 1, nodeCount - nodeIndex);
+        nodes[nodeIndex] = node;
+        nodeCount++;
+        relink(nodeIndex);
+        validStarts = Math.min(validStarts, nodeIndex);
+    }
+
+    /**
+     * Unlinks a node from the ring, normally an empty one.
+     */
+    private void removeNode(int nodeIndex) {
+        releaseNode(nodes[nodeIndex]);
+        nodeCount--;
+        System.arraycopy(nodes, nodeIndex + 1, nodes, nodeIndex, nodeCount - nodeIndex);
+        nodes[nodeCount] = null;
+        if (nodeCount == 0) {
+            head = null;
+            tail = null;
+            validStarts = 0;
             return;
         }
-        String str = value.toString(base);
-        for (int i = 0; i < str.length(); i++) {
-            char ch = str.charAt(i);
-            int digit = Character.digit(ch, base);
-            if (digit < 0) {
-                throw new IllegalArgumentException("Invalid digit '" + ch + "' for base " + base);
-            }
-            appendNode((byte) digit);
+        relink(nodeIndex);
+        validStarts = Math.min(validStarts, nodeIndex);
+    }
+
+    /**
+     * Restores the ring around <tt>nodes[nodeIndex]</tt> after the array
+     * was changed at that position.
+     */
+    private void relink(int nodeIndex) {
+        if (nodeIndex < nodeCount) {
+            nodes[nodeIndex].next = nodes[nodeIndex + 1 == nodeCount ? 0 : nodeIndex + 1];
         }
+        nodes[nodeIndex == 0 ? nodeCount - 1 : nodeIndex - 1].next = nodes[nodeIndex == nodeCount ? 0 : nodeIndex];
+        head = nodes[0];
+        tail = nodes[nodeCount - 1];
     }
 
-    private BigInteger toBigInteger() {
-        if (size == 0) {
-            return BigInteger.ZERO;
+    /**
+     * Invalidates positions of the nodes that follow a node whose
+     * digit count has changed.
+     */
+    private void countChanged(int nodeIndex) {
+        if (validStarts > nodeIndex + 1) {
+            validStarts = nodeIndex + 1;
         }
-        BigInteger result = BigInteger.ZERO;
-        BigInteger b = BigInteger.valueOf(this.base);
-        Node current = head;
-        for (int i = 0; i < size; i++) {
-            int digit = current.value & 0xFF;
-            result = result.multiply(b).add(BigInteger.valueOf(digit));
-            current = current.next;
+    }
+
+    /**
+     * Finds the node holding the digit with the given index.
+     *
+     * @return position of the node in <tt>nodes</tt>.
+     */
+    private int nodeIndexOf(int index) {
+        repairStarts();
+        return findNode(index);
+    }
+
+    /**
+     * Binary search over <tt>starts</tt>, which must be up to date.
+     */
+    private int findNode(int index) {
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
         }
-        return result;
+        return low;
     }
 
-    private void appendNode(byte digit) {
-        checkDigitRange(digit);
-        Node newNode = new Node(digit);
-        if (head == null) {
-            head = newNode;
-            tail = newNode;
-            newNode.next = newNode;
-        } else {
-            newNode.next = head;
-            tail.next = newNode;
-            tail = newNode;
+    private void dropCache() {
+        cachedValue = null;
+        cachedDecimal = null;
+        cachedText = null;
+        cachedHash = 0;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("snapshot is read-only");
         }
-        size++;
     }
 
-    private void removeNode(Node prev, Node node) {
-        if (size == 0 || node == null) {
-            return;
+    /**
+     * Must be called before digits or nodes are changed. Copies the nodes
+     * if they are shared with a snapshot, which invalidates all cursors.
+     *
+     * @return <tt>true</tt> if the nodes were copied.
+     */
+    private boolean beforeWrite() {
+        checkNotFrozen();
+        dropCache();
+        if (!shared) {
+            return false;
         }
-        if (size == 1) {
-            head = null;
-            tail = null;
-            size = 0;
-            return;
+        Node[] copies = new Node[nodes.length];
+        for (int i = 0; i < nodeCount; i++) {
+            copies[i] = newNode();
+            System.arraycopy(nodes[i].words, 0, copies[i].words, 0, CHUNK_WORDS);
+            copies[i].count = nodes[i].count;
+            if (i > 0) {
+                copies[i - 1].next = copies[i];
+            }
+        }
+        if (nodeCount > 0) {
+            head = copies[0];
+            tail = copies[nodeCount - 1];
+            tail.next = head;
+        }
+        nodes = copies;
+        starts = starts.clone();
+        shared = false;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Brings all of <tt>starts</tt> up to date. After this, lookups only
+     * read the index until the list is modified.
+     */
+    void repairStarts() {
+        if (validStarts < nodeCount) {
+            if (validStarts == 0) {
+                starts[0] = 0;
+                validStarts = 1;
+            }
+            for (int i = validStarts; i < nodeCount; i++) {
+                starts[i] = starts[i - 1] + nodes[i - 1].count;
+            }
+            validStarts = nodeCount;
         }
-        prev.next = node.next;
-        if (node == head) {
-            head = node.next;
+    }
+
+    /**
+     * Drops all digits starting from <tt>newSize</tt>.
+     *
+     * @return <tt>true</tt> if the list became shorter.
+     */
+    private boolean truncate(int newSize) {
+        if (newSize >= size) {
+            return false;
         }
-        if (node == tail) {
-            tail = prev;
+        if (newSize == 0) {
+            clear();
+            return true;
         }
-        size--;
+        modCount++;
+        Cursor cursor = new Cursor(newSize - 1);
+        Node last = cursor.node;
+        for (int i = cursor.offset + 1; i < last.count; i++) {
+            putDigit(last, i, 0);
+        }
+        last.count = cursor.offset + 1;
+        for (int n = cursor.nodeIndex + 1; n < nodeCount; n++) {
+            releaseNode(nodes[n]);
+        }
+        Arrays.fill(nodes, cursor.nodeIndex + 1, nodeCount, null);
+        nodeCount = cursor.nodeIndex + 1;
+        validStarts = Math.min(validStarts, nodeCount);
+        last.next = head;
+        tail = last;
+        size = newSize;
+        return true;
     }
 
-    private Node nodeAt(int index) {
+    private void checkElementIndex(int index) {
         if (index < 0 || index >= size) {
             throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
         }
-        Node current = head;
-        for (int i = 0; i < index; i++) {
-            current = current.next;
-        }
-        return current;
     }
 
     private void checkDigitRange(byte digit) {
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2014, NTUU KPI, Computer systems department and/or its affiliates. All rights reserved.
+ * NTUU KPI PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ */
+package ua.kpi.comsys.test2.implementation;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API version of {@link BitwiseLanes#apply}. Must be loaded only if
+ * the <tt>jdk.incubator.vector</tt> module is present, see
+ * {@link BitwiseLanes#VECTORIZED}.
+ *
+ * @author Sukhoruchkin Hlib IA-34
+ * 19th variant
+ */
+final class VectorLanes {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    private VectorLanes() {
+    }
+
+    static void apply(BitwiseLanes.Operation op, long[] a, long[] b, long[] dest, int length) {
+        VectorOperators.Binary vectorOp;
+        switch (op) {
+            case AND:
+                vectorOp = VectorOperators.AND;
+                break;
+            case OR:
+                vectorOp = VectorOperators.OR;
+                break;
+            case XOR:
+                vectorOp = VectorOperators.XOR;
+                break;
+            case AND_NOT:
+                vectorOp = VectorOperators.AND_NOT;
+                break;
+            default:
+                throw new AssertionError(op);
+        }
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            LongVector.fromArray(SPECIES, a, i)
+                    .lanewise(vectorOp, LongVector.fromArray(SPECIES, b, i))
+                    .intoArray(dest, i);
+        }
+        BitwiseLanes.applyScalar(op, a, b, dest, i, length);
+    }
+}
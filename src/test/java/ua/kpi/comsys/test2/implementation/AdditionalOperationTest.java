@@ -7,12 +7,20 @@
 
 package ua.kpi.comsys.test2.implementation;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Random;
+
 import org.junit.After;
 import org.junit.Test;
 
+import ua.kpi.comsys.test2.NumberList;
+
 import static org.junit.Assume.assumeTrue;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
 
 public class AdditionalOperationTest {
 
@@ -128,6 +136,39 @@ public class AdditionalOperationTest {
         assertEquals("Additional operation implemented in a wrong way",list3,result);
     }
 
+    @Test
+    public void testANDLongNumbers() {
+        assumeTrue(NumberListImpl.getRecordBookNumber() % 7  == 5);
+
+        String a = "79483758967495604375647803561675463655464562565464565654634156134636";
+        String b = "1212144468782345613";
+        list1 = new NumberListImpl(a);
+        list2 = new NumberListImpl(b);
+        list3 = new NumberListImpl(new BigInteger(a).and(new BigInteger(b)).toString());
+
+        result = list1.additionalOperation(list2);
+        assertEquals("Additional operation implemented in a wrong way", list3, result);
+
+        result = list2.additionalOperation(list1);
+        assertEquals("Additional operation implemented in a wrong way", list3, result);
+    }
+
+    @Test
+    public void testANDBinary() {
+        assumeTrue(NumberListImpl.getRecordBookNumber() % 7  == 5);
+
+        list1 = new NumberListImpl("1212144468782345613").changeScale();
+        list2 = new NumberListImpl("4294967295").changeScale();
+        list3 = new NumberListImpl("3728338317").changeScale();
+
+        result = list1.additionalOperation(list2);
+        assertEquals("Additional operation implemented in a wrong way", list3, result);
+
+        list2 = new NumberListImpl("0").changeScale();
+        result = list1.additionalOperation(list2);
+        assertEquals("Additional operation implemented in a wrong way", list2, result);
+    }
+
     @Test
     public void testOR() {
         assumeTrue(NumberListImpl.getRecordBookNumber() % 7  == 6);
@@ -141,4 +182,223 @@ public class AdditionalOperationTest {
         assertNotNull("Result is null while it shouldn't!", result);
         assertEquals("Additional operation implemented in a wrong way",list3,result);
     }
+
+    @Test
+    public void testArithmetic() {
+        Random random = new Random(21);
+        int[] lengths = {1, 2, 9, 10, 40, 390, 400, 1000, 5000};
+        for (int length1: lengths) {
+            for (int length2: lengths) {
+                BigInteger a = new BigInteger(length1 * 4, random);
+                BigInteger b = new BigInteger(length2 * 4, random).add(BigInteger.ONE);
+                list1 = new NumberListImpl(a.toString());
+                list2 = new NumberListImpl(b.toString());
+
+                assertEquals("Wrong sum", a.add(b).toString(), list1.sum(list2).toDecimalString());
+                assertEquals("Wrong product", a.multiply(b).toString(), list1.multiply(list2).toDecimalString());
+                assertEquals("Wrong quotient", a.divide(b).toString(), list1.divide(list2).toDecimalString());
+                assertEquals("Wrong remainder", a.mod(b).toString(), list1.mod(list2).toDecimalString());
+                if (a.compareTo(b) >= 0) {
+                    assertEquals("Wrong difference", a.subtract(b).toString(), list1.subtract(list2).toDecimalString());
+                }
+                assertEquals("Operand has changed", a.toString(), list1.toDecimalString());
+                assertEquals("Operand has changed", b.toString(), list2.toDecimalString());
+            }
+        }
+    }
+
+    @Test
+    public void testArithmeticMixedOperands() {
+        list1 = new NumberListImpl("1212144468782345613").changeScale();
+        list2 = new NumberListImpl("4294967296");
+
+        result = list1.multiply(list2);
+        assertEquals("Wrong scale of notation", list1.changeScale().multiply(list2).changeScale(), result);
+        assertEquals("Wrong product", "5206120851447467350004072448", result.toDecimalString());
+
+        result = list2.sum(new ConcurrentNumberList(new NumberListImpl("256")));
+        assertEquals("Wrong sum", "4294967552", result.toDecimalString());
+
+        result = list2.subtract(list2);
+        assertEquals("Wrong difference", new NumberListImpl("0"), result);
+    }
+
+    @Test
+    public void testBitwiseOperations() {
+        Random random = new Random(22);
+        int[] lengths = {1, 15, 16, 17, 64, 100, 1000, 4099};
+        for (int length1: lengths) {
+            for (int length2: lengths) {
+                BigInteger a = new BigInteger(length1 * 4, random);
+                BigInteger b = new BigInteger(length2 * 4, random);
+                list1 = new NumberListImpl(a.toString());
+                list2 = new NumberListImpl(b.toString()).changeScale();
+
+                assertEquals("Wrong AND", a.and(b).toString(), list1.and(list2).toDecimalString());
+                assertEquals("Wrong OR", a.or(b).toString(), list1.or(list2).toDecimalString());
+                assertEquals("Wrong XOR", a.xor(b).toString(), list1.xor(list2).toDecimalString());
+                assertEquals("Wrong AND NOT", a.andNot(b).toString(), list1.andNot(list2).toDecimalString());
+                assertEquals("Wrong AND NOT", b.andNot(a).toString(), list2.andNot(list1).toDecimalString());
+                assertEquals("Wrong scale of notation", list2.xor(list1), list1.xor(list2).changeScale());
+                assertEquals("Operand has changed", a.toString(), list1.toDecimalString());
+                assertEquals("Operand has changed", b.toString(), list2.toDecimalString());
+            }
+        }
+        list1 = new NumberListImpl("1212144468782345613");
+        result = list1.or(new ConcurrentNumberList(new NumberListImpl("4294967295")));
+        assertEquals("Wrong OR", "1212144469348974591", result.toDecimalString());
+    }
+
+    @Test
+    public void testBitwiseWithOtherNumberList() {
+        Random random = new Random(24);
+        int[] lengths = {1, 15, 16, 17, 100, 1000};
+        for (int length1: lengths) {
+            for (int length2: lengths) {
+                BigInteger a = new BigInteger(length1 * 4, random);
+                BigInteger b = new BigInteger(length2 * 4, random);
+                DigitList digits = new DigitList("00" + b.toString(16));
+                list1 = new NumberListImpl(a.toString());
+
+                assertEquals("Wrong AND", a.and(b).toString(), list1.additionalOperation(digits).toDecimalString());
+                assertEquals("Wrong OR", a.or(b).toString(), list1.or(digits).toDecimalString());
+                assertEquals("Wrong XOR", a.xor(b).toString(), list1.xor(digits).toDecimalString());
+                assertEquals("Wrong AND NOT", a.andNot(b).toString(), list1.andNot(digits).toDecimalString());
+                list2 = list1.changeScale();
+                list1.andInPlace(digits);
+                list2.andInPlace(digits);
+                assertEquals("Wrong AND in place", a.and(b).toString(), list1.toDecimalString());
+                assertEquals("Wrong binary AND in place", a.and(b).toString(), list2.toDecimalString());
+            }
+        }
+        list1 = new NumberListImpl("255");
+        try {
+            list1.and(new DigitList("1G"));
+            fail("Digit out of range was not rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /**
+     * <tt>NumberList</tt> of hex digits that is not one of the lists of this
+     * package.
+     */
+    private static class DigitList extends ArrayList<Byte> implements NumberList {
+        private static final long serialVersionUID = 1L;
+
+        DigitList(String hex) {
+            for (char c: hex.toCharArray()) {
+                add((byte) Character.digit(c, 17));
+            }
+        }
+
+        @Override
+        public boolean swap(int index1, int index2) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void sortAscending() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void sortDescending() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void shiftLeft() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void shiftRight() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Test
+    public void testBitwiseLanesMatchScalarLoop() {
+        Random random = new Random(23);
+        for (int length = 0; length < 40; length++) {
+            long[] a = random.longs(length).toArray();
+            long[] b = random.longs(length).toArray();
+            for (BitwiseLanes.Operation op: BitwiseLanes.Operation.values()) {
+                long[] expected = new long[length];
+                long[] actual = new long[length];
+                BitwiseLanes.applyScalar(op, a, b, expected, 0, length);
+                BitwiseLanes.apply(op, a, b, actual, length);
+                assertArrayEquals("Wrong lanes for " + op, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testAndInPlace() {
+        Random random = new Random(23);
+        int[] lengths = {1, 15, 300, 1000};
+        for (int length1: lengths) {
+            for (int length2: lengths) {
+                BigInteger a = new BigInteger(length1 * 4, random);
+                BigInteger b = new BigInteger(length2 * 4, random);
+                String expected = a.and(b).toString();
+                list2 = new NumberListImpl(b.toString());
+
+                list1 = new NumberListImpl(a.toString());
+                list1.rotate(length1 / 3);
+                list1.rotate(-(length1 / 3));
+                list1.andInPlace(list2);
+                assertEquals("Wrong AND in place", expected, list1.toDecimalString());
+                assertEquals("Leading zeros were not removed", list1.and(list1).size(), list1.size());
+
+                list1 = new NumberListImpl(a.toString());
+                result = new NumberListImpl("123456789012345678901234567890");
+                NumberListImpl.andInto(list1, list2.changeScale(), result);
+                assertEquals("Wrong AND into", expected, result.toDecimalString());
+                NumberListImpl.andInto(list2, result, result);
+                assertEquals("Wrong AND into one of operands", expected, result.toDecimalString());
+                assertEquals("Operand has changed", a.toString(), list1.toDecimalString());
+                assertEquals("Operand has changed", b.toString(), list2.toDecimalString());
+            }
+        }
+    }
+
+    @Test
+    public void testAndInPlaceWithSnapshot() {
+        list1 = new NumberListImpl("1212144468782345613");
+        NumberListImpl snapshot = list1.snapshot();
+        list1.andInPlace(new NumberListImpl("4294967295"));
+        assertEquals("Wrong AND in place", "3728338317", list1.toDecimalString());
+        assertEquals("Snapshot has changed", "1212144468782345613", snapshot.toDecimalString());
+
+        list1.andInPlace(list1);
+        assertEquals("Wrong AND with itself", "3728338317", list1.toDecimalString());
+
+        list1.andInPlace(new NumberListImpl("0"));
+        assertEquals("Wrong AND with zero", new NumberListImpl("0"), list1);
+    }
+
+    @Test
+    public void testArithmeticErrors() {
+        list1 = new NumberListImpl("15");
+        list2 = new NumberListImpl("16");
+        list3 = new NumberListImpl("0");
+
+        try {
+            list1.subtract(list2);
+            fail("Negative difference was not rejected");
+        } catch (ArithmeticException expected) {
+        }
+        try {
+            list1.divide(list3);
+            fail("Division by zero was not rejected");
+        } catch (ArithmeticException expected) {
+        }
+        try {
+            list1.mod(list3);
+            fail("Division by zero was not rejected");
+        } catch (ArithmeticException expected) {
+        }
+    }
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2014-2015, NTUU KPI, Computer systems department and/or its affiliates. All rights reserved.
+ * NTUU KPI PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ */
+
+package ua.kpi.comsys.test2.implementation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentNumberListTest {
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int DIGITS_PER_WRITER = 20000;
+
+    @Test
+    public void testSingleThread() {
+        ConcurrentNumberList list = new ConcurrentNumberList(new NumberListImpl("1212144468782345613"));
+        String hex = list.toString();
+        list.add((byte) 15);
+        list.shiftRight();
+        list.subList(0, 1).clear();
+
+        assertEquals("Wrong content", hex, list.toString());
+        assertEquals("Wrong value", "1212144468782345613", list.toDecimalString());
+        assertEquals("Wrong equality", new NumberListImpl("1212144468782345613"), list);
+    }
+
+    @Test(timeout = 10000)
+    public void testBulkChangesWithOwnSubList() {
+        ConcurrentNumberList list = new ConcurrentNumberList(new NumberListImpl("305419896"));
+        list.addAll(list.subList(0, 2));
+        assertEquals("Wrong addAll()", "1234567812", list.toString());
+        list.addAll(0, list.subList(8, 10));
+        assertEquals("Wrong addAll(int, ...)", "121234567812", list.toString());
+        list.removeAll(list.subList(0, 2));
+        assertEquals("Wrong removeAll()", "345678", list.toString());
+        list.retainAll(list.subList(2, 4));
+        assertEquals("Wrong retainAll()", "56", list.toString());
+    }
+
+    @Test
+    public void testConcurrentReadsAndWrites() throws InterruptedException {
+        ConcurrentNumberList list = new ConcurrentNumberList();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < WRITERS; w++) {
+            byte digit = (byte) w;
+            threads.add(new Thread(() -> run(start, failure, () -> {
+                for (int i = 0; i < DIGITS_PER_WRITER; i++) {
+                    list.add(digit);
+                    if (i % 100 == 0) {
+                        // replace a digit of this writer with itself
+                        int index = list.indexOf(digit);
+                        list.set(index, digit);
+                    }
+                }
+            })));
+        }
+        for (int r = 0; r < READERS; r++) {
+            threads.add(new Thread(() -> run(start, failure, () -> {
+                while (writing.get()) {
+                    int size = list.size();
+                    for (int i = 0; i < size; i += 97) {
+                        byte d = list.get(i);
+                        if (d < 0 || d >= WRITERS) {
+                            throw new AssertionError("Wrong digit " + d + " at " + i);
+                        }
+                    }
+                    NumberListImpl snapshot = list.snapshot();
+                    int[] counts = new int[16];
+                    snapshot.forEachDigit(d -> counts[d]++);
+                    int total = 0;
+                    for (int count: counts) {
+                        if (count > DIGITS_PER_WRITER) {
+                            throw new AssertionError("Too many digits in snapshot");
+                        }
+                        total += count;
+                    }
+                    assertEquals("Inconsistent snapshot", snapshot.size(), total);
+                }
+            })));
+        }
+
+        for (Thread t: threads) {
+            t.start();
+        }
+        start.countDown();
+        for (int w = 0; w < WRITERS; w++) {
+            threads.get(w).join();
+        }
+        writing.set(false);
+        for (Thread t: threads) {
+            t.join();
+        }
+
+        assertNull("Thread failed: " + failure.get(), failure.get());
+        assertEquals("Wrong size", WRITERS * DIGITS_PER_WRITER, list.size());
+        for (byte w = 0; w < WRITERS; w++) {
+            int count = 0;
+            for (Byte d: list) {
+                if (d == w) {
+                    count++;
+                }
+            }
+            assertEquals("Lost digits of writer " + w, DIGITS_PER_WRITER, count);
+        }
+    }
+
+    @Test
+    public void testSnapshotsDuringSorts() throws InterruptedException {
+        NumberListImpl numbers = new NumberListImpl();
+        for (int i = 0; i < 20_000; i++) {
+            numbers.add((byte) (i % 2));
+        }
+        ConcurrentNumberList list = new ConcurrentNumberList(numbers);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        threads.add(new Thread(() -> run(start, failure, () -> {
+            for (int i = 0; i < 1000; i++) {
+                list.sortAscending();
+                list.sortDescending();
+            }
+        })));
+        for (int r = 0; r < READERS; r++) {
+            threads.add(new Thread(() -> run(start, failure, () -> {
+                while (writing.get()) {
+                    // every consistent state is 0...01...1, 1...10...0 or the initial 0101...
+                    NumberListImpl snapshot = list.snapshot();
+                    int changes = 0;
+                    int ones = 0;
+                    int previous = snapshot.getDigit(0);
+                    for (Byte d: snapshot) {
+                        if (d != previous) {
+                            changes++;
+                            previous = d;
+                        }
+                        ones += d;
+                    }
+                    assertEquals("Wrong number of ones in snapshot", 10_000, ones);
+                    assertTrue("Torn snapshot with " + changes + " runs", changes <= 1 || changes == 19_999);
+                }
+            })));
+        }
+
+        for (Thread t: threads) {
+            t.start();
+        }
+        start.countDown();
+        threads.get(0).join();
+        writing.set(false);
+        for (Thread t: threads) {
+            t.join();
+        }
+
+        assertNull("Thread failed: " + failure.get(), failure.get());
+    }
+
+    private static void run(CountDownLatch start, AtomicReference<Throwable> failure, Runnable task) {
+        try {
+            start.await();
+            task.run();
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+}
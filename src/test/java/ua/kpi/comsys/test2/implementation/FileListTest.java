@@ -11,18 +11,33 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
 
 import org.junit.After;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 public class FileListTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     File f;
     static String PREFIX = "src/test/resources/";
     static String FILE_1 = PREFIX+"1.txt";
@@ -150,4 +165,149 @@ public class FileListTest {
 
         assertEquals(str, list.toDecimalString());
     }
+
+    @Test
+    public void testReadMultilineFile() throws IOException {
+        f = folder.newFile("multiline.txt");
+        Files.write(f.toPath(), "  7948375896749560437564780\n3561675463655464562565464565654634156134636\r\n\n".getBytes());
+
+        NumberListImpl list = new NumberListImpl(f);
+        assertEquals("Incorrect list loading",
+                new NumberListImpl("79483758967495604375647803561675463655464562565464565654634156134636"), list);
+    }
+
+    @Test
+    public void testReadInvalidFile() throws IOException {
+        f = folder.newFile("invalid.txt");
+        Files.write(f.toPath(), "7948375896749s5604375".getBytes());
+
+        NumberListImpl list = new NumberListImpl(f);
+        assertNotNull("Failed to load list from file", list);
+        assertTrue("When file content is incorrect, list should be empty", list.isEmpty());
+    }
+
+    @Test
+    public void testReadWhitespaceInsideLine() throws IOException {
+        f = folder.newFile("spaced.txt");
+        Files.write(f.toPath(), "\t 12 \r\n  34\t\n".getBytes());
+        assertEquals("Whitespace around lines was not skipped", "1234", new NumberListImpl(f).toDecimalString());
+
+        Files.write(f.toPath(), "12 34\n".getBytes());
+        assertTrue("Whitespace inside a line was accepted", new NumberListImpl(f).isEmpty());
+
+        Files.write(f.toPath(), "+ 1234".getBytes());
+        assertTrue("Whitespace after the sign was accepted", new NumberListImpl(f).isEmpty());
+    }
+
+    @Test
+    public void testReadHugeFile() throws IOException {
+        BigInteger value = new BigInteger(200_000, new Random(19));
+        String decimal = value.toString();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < decimal.length(); i += 20) {
+            sb.append(decimal, i, Math.min(i + 20, decimal.length()));
+            sb.append(System.lineSeparator()).append(" ".repeat(400));
+        }
+        f = folder.newFile("huge.txt");
+        Files.write(f.toPath(), sb.toString().getBytes());
+
+        NumberListImpl list = new NumberListImpl(f);
+        assertEquals("Incorrect list loading", value.toString(16).toUpperCase(), list.toString());
+    }
+
+    @Test
+    public void testWriteAtomic() throws IOException {
+        String value = "1000000000000000000000000000000000000000000000000000000000000000000000000000000000000000007";
+        f = folder.newFile("atomic.txt");
+        Files.write(f.toPath(), "garbage that is longer than the number itself, which must be replaced".getBytes());
+
+        NumberListImpl list = new NumberListImpl(value);
+        list.saveList(f, true);
+
+        assertEquals("Incorrect write to file", value, new String(Files.readAllBytes(f.toPath())));
+        assertEquals("Temporary file was not removed", 1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testWriteAtomicKeepsPermissions() throws IOException {
+        assumeTrue("No POSIX permissions", folder.getRoot().toPath().getFileSystem()
+                .supportedFileAttributeViews().contains("posix"));
+        NumberListImpl list = new NumberListImpl("1234567890");
+        File plain = new File(folder.getRoot(), "plain.txt");
+        f = new File(folder.getRoot(), "atomic.txt");
+        list.saveList(plain, false);
+        list.saveList(f, true);
+        assertEquals("Atomic save of a new file has other permissions",
+                Files.getPosixFilePermissions(plain.toPath()), Files.getPosixFilePermissions(f.toPath()));
+
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(f.toPath(), permissions);
+        list.saveList(f, true);
+        assertEquals("Atomic save changed permissions", permissions, Files.getPosixFilePermissions(f.toPath()));
+    }
+
+    @Test
+    public void testWriteHugeNumber() throws IOException {
+        BigInteger value = new BigInteger(100_000, new Random(19)).shiftLeft(10_000);
+        f = folder.newFile("huge.txt");
+
+        NumberListImpl list = new NumberListImpl(value.toString());
+        list.saveList(f);
+
+        assertEquals("Incorrect write to file", value.toString(), new String(Files.readAllBytes(f.toPath())));
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+        BigInteger value = new BigInteger(300_000, new Random(25));
+        f = folder.newFile("number.bin");
+
+        NumberListImpl list = new NumberListImpl(value.toString());
+        list.add(0, (byte) 0);
+        list.rotate(1234);
+        list.remove(7);
+        list.saveBinary(f.toPath());
+        NumberListImpl loaded = NumberListImpl.loadBinary(f.toPath());
+        assertEquals("Incorrect binary loading", list, loaded);
+        assertEquals("Wrong size in header", list.size(), NumberListImpl.readBinarySize(f.toPath()));
+        assertEquals("Binary file is not packed", BinaryFormat.HEADER_SIZE + (list.size() + 15) / 16 * 8,
+                Files.size(f.toPath()));
+
+        list = new NumberListImpl("1212144468782345613").changeScale();
+        list.saveBinary(f.toPath());
+        loaded = NumberListImpl.loadBinary(f.toPath());
+        assertEquals("Incorrect binary loading", list, loaded);
+        assertEquals("Incorrect binary loading", "1212144468782345613", loaded.changeScale().toDecimalString());
+
+        list = new NumberListImpl();
+        list.saveBinary(f.toPath());
+        assertTrue("Empty list was not loaded empty", NumberListImpl.loadBinary(f.toPath()).isEmpty());
+    }
+
+    @Test
+    public void testDamagedBinaryFile() throws IOException {
+        f = folder.newFile("damaged.bin");
+        new NumberListImpl("79483758967495604375647803561675463655464562565464565654634156134636").saveBinary(f.toPath());
+        byte[] bytes = Files.readAllBytes(f.toPath());
+
+        bytes[BinaryFormat.HEADER_SIZE + 3] ^= 1;
+        Files.write(f.toPath(), bytes);
+        assertLoadFails("Damaged body was not detected");
+
+        bytes[BinaryFormat.HEADER_SIZE + 3] ^= 1;
+        Files.write(f.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+        assertLoadFails("Truncated file was not detected");
+
+        bytes[0] = 'X';
+        Files.write(f.toPath(), bytes);
+        assertLoadFails("Wrong magic was not detected");
+    }
+
+    private void assertLoadFails(String message) {
+        try {
+            NumberListImpl.loadBinary(f.toPath());
+            fail(message);
+        } catch (UncheckedIOException expected) {
+        }
+    }
 }
@@ -0,0 +1,466 @@
+/*
+ * Copyright (c) 2014-2015, NTUU KPI, Computer systems department and/or its affiliates. All rights reserved.
+ * NTUU KPI PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ */
+
+package ua.kpi.comsys.test2.implementation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ListOperationsTest {
+    NumberListImpl list;
+
+    @After
+    public void tearDown() {
+        if (list != null) {
+            list.clear();
+            list = null;
+        }
+    }
+
+    @Test
+    public void testLongListAcrossNodes() {
+        list = new NumberListImpl();
+        List<Byte> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            byte d = (byte) (i % 16);
+            list.add(d);
+            expected.add(d);
+        }
+
+        assertEquals("Wrong size", expected.size(), list.size());
+        assertEquals("Wrong content", expected, list);
+        assertEquals("Wrong value", expected.get(4097), list.get(4097));
+    }
+
+    @Test
+    public void testInsertAndRemoveInTheMiddle() {
+        list = new NumberListImpl();
+        List<Byte> expected = new ArrayList<>();
+        Random random = new Random(19);
+        for (int i = 0; i < 20000; i++) {
+            byte d = (byte) random.nextInt(16);
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                int index = random.nextInt(expected.size() + 1);
+                list.add(index, d);
+                expected.add(index, d);
+            } else {
+                int index = random.nextInt(expected.size());
+                assertEquals("Wrong removed value", expected.remove(index), list.remove(index));
+            }
+        }
+
+        assertEquals("Wrong content", expected, list);
+    }
+
+    @Test
+    public void testShiftsOnLongList() {
+        list = new NumberListImpl();
+        List<Byte> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            list.add((byte) (i % 16));
+            expected.add((byte) (i % 16));
+        }
+
+        for (int i = 0; i < 300; i++) {
+            list.shiftRight();
+        }
+        Collections.rotate(expected, 300);
+        assertEquals("Wrong result of shiftRight()", expected, list);
+
+        for (int i = 0; i < 700; i++) {
+            list.shiftLeft();
+        }
+        Collections.rotate(expected, -700);
+        assertEquals("Wrong result of shiftLeft()", expected, list);
+    }
+
+    @Test
+    public void testRotate() {
+        list = new NumberListImpl();
+        List<Byte> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            list.add((byte) (i % 16));
+            expected.add((byte) (i % 16));
+        }
+
+        int[] distances = {1, -1, 300, -700, 1000, 123456, -98765, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        for (int distance: distances) {
+            list.rotate(distance);
+            Collections.rotate(expected, distance);
+            assertEquals("Wrong result of rotate(" + distance + ")", expected, list);
+        }
+
+        list.add(5, (byte) 15);
+        expected.add(5, (byte) 15);
+        list.add((byte) 14);
+        expected.add((byte) 14);
+        assertEquals("Wrong value", expected.remove(700), list.remove(700));
+        assertEquals("Wrong content after rotation", expected, list);
+        assertEquals("Wrong string after rotation", toHex(expected), list.toString());
+    }
+
+    private static String toHex(List<Byte> digits) {
+        StringBuilder sb = new StringBuilder();
+        for (Byte d: digits) {
+            sb.append(Character.toUpperCase(Character.forDigit(d, 16)));
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testPrimitiveDigitAccess() {
+        list = new NumberListImpl();
+        byte[] digits = new byte[3000];
+        for (int i = 0; i < digits.length; i++) {
+            digits[i] = (byte) (i * 7 % 16);
+        }
+        list.appendDigits(digits, 0, digits.length);
+        list.rotate(100);
+
+        byte[] copy = new byte[digits.length];
+        list.copyDigits(0, copy, 0, copy.length);
+        list.setDigit(5, (byte) 15);
+        int[] sum = new int[1];
+        list.forEachDigit(d -> sum[0] += d);
+
+        int expectedSum = 0;
+        for (int i = 0; i < copy.length; i++) {
+            assertEquals("Wrong copied digit", digits[Math.floorMod(i - 100, digits.length)], copy[i]);
+            expectedSum += i == 5 ? 15 : copy[i];
+        }
+        assertEquals("Wrong value", 15, list.getDigit(5));
+        assertEquals("Wrong sum of digits", expectedSum, sum[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAppendInvalidDigits() {
+        list = new NumberListImpl();
+        list.appendDigits(new byte[] {1, 2, 16}, 0, 3);
+    }
+
+    @Test
+    public void testBulkRemoveAndRetain() {
+        list = new NumberListImpl();
+        List<Byte> expected = new ArrayList<>();
+        Random random = new Random(19);
+        for (int i = 0; i < 5000; i++) {
+            byte d = (byte) random.nextInt(16);
+            list.add(d);
+            expected.add(d);
+        }
+        list.rotate(77);
+        Collections.rotate(expected, 77);
+
+        NumberListImpl digits = new NumberListImpl("4660");
+        List<Byte> same = new ArrayList<>(digits);
+        assertTrue("removeAll() didn't change the list", list.removeAll(digits));
+        expected.removeAll(same);
+        assertEquals("Wrong result of removeAll()", expected, list);
+
+        List<Byte> retained = List.of((byte) 0, (byte) 7, (byte) 15);
+        assertTrue("retainAll() didn't change the list", list.retainAll(retained));
+        expected.retainAll(retained);
+        assertEquals("Wrong result of retainAll()", expected, list);
+        assertTrue("retainAll() changed the list", !list.retainAll(retained));
+    }
+
+    @Test
+    public void testBulkRemoveWithoutMatches() {
+        list = new NumberListImpl("305419896");
+        list.rotate(5);
+        List<Byte> before = new ArrayList<>(list);
+        ListIterator<Byte> iterator = list.listIterator();
+        List<Byte> sub = list.subList(2, 6);
+        NumberListImpl snapshot = list.snapshot();
+
+        assertTrue("removeAll() changed the list", !list.removeAll(List.of((byte) 15)));
+        assertTrue("retainAll() changed the list", !list.retainAll(before));
+        assertEquals("Wrong digits after no-op removal", before, list);
+        assertEquals("Iterator was invalidated", before.get(0), iterator.next());
+        assertEquals("Sublist was invalidated", before.subList(2, 6), sub);
+
+        list.set(0, (byte) 0);
+        assertEquals("Snapshot has changed", before, snapshot);
+    }
+
+    @Test
+    public void testListIterator() {
+        list = new NumberListImpl();
+        List<Byte> expected = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            list.add((byte) (i % 16));
+            expected.add((byte) (i % 16));
+        }
+        list.rotate(1234);
+        Collections.rotate(expected, 1234);
+
+        Random random = new Random(19);
+        ListIterator<Byte> actualIt = list.listIterator(1500);
+        ListIterator<Byte> expectedIt = expected.listIterator(1500);
+        boolean canModify = false;
+        for (int i = 0; i < 20000; i++) {
+            int op = random.nextInt(10);
+            if (op < 4 && expectedIt.hasNext()) {
+                assertEquals("Wrong next()", expectedIt.next(), actualIt.next());
+                canModify = true;
+            } else if (op < 8 && expectedIt.hasPrevious()) {
+                assertEquals("Wrong previous()", expectedIt.previous(), actualIt.previous());
+                canModify = true;
+            } else if (op == 8 && canModify) {
+                byte d = (byte) random.nextInt(16);
+                expectedIt.set(d);
+                actualIt.set(d);
+            } else if (op == 9 && canModify && random.nextBoolean()) {
+                expectedIt.remove();
+                actualIt.remove();
+                canModify = false;
+            } else {
+                byte d = (byte) random.nextInt(16);
+                expectedIt.add(d);
+                actualIt.add(d);
+                canModify = false;
+            }
+            assertEquals("Wrong nextIndex()", expectedIt.nextIndex(), actualIt.nextIndex());
+        }
+        assertEquals("Wrong content", expected, list);
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testIteratorFailsFast() {
+        list = new NumberListImpl("4660");
+        for (Byte d: list) {
+            list.add(d);
+        }
+    }
+
+    @Test
+    public void testParallelStreams() {
+        list = new NumberListImpl();
+        List<Byte> expected = new ArrayList<>();
+        Random random = new Random(19);
+        for (int i = 0; i < 100000; i++) {
+            byte d = (byte) random.nextInt(16);
+            list.add(d);
+            expected.add(d);
+        }
+        list.rotate(999);
+        Collections.rotate(expected, 999);
+
+        long expectedSum = expected.stream().mapToLong(Byte::longValue).sum();
+        assertEquals("Wrong sum of digits", expectedSum, list.digitStream().parallel().asLongStream().sum());
+        assertEquals("Wrong digits", expected, list.parallelStream().collect(Collectors.toList()));
+
+        Spliterator<Byte> spliterator = list.spliterator();
+        assertTrue("Spliterator is not SIZED",
+                spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+        Spliterator<Byte> prefix = spliterator.trySplit();
+        assertEquals("Unbalanced split", 50000, prefix.estimateSize());
+        assertEquals("Unbalanced split", 50000, spliterator.estimateSize());
+    }
+
+    @Test
+    public void testSnapshotIsNotChangedBySource() {
+        list = new NumberListImpl();
+        for (int i = 0; i < 3000; i++) {
+            list.add((byte) (i % 16));
+        }
+        list.rotate(100);
+        List<Byte> before = new ArrayList<>(list);
+        String decimal = list.toDecimalString();
+        NumberListImpl snapshot = list.snapshot();
+
+        ListIterator<Byte> it = list.listIterator();
+        it.next();
+        it.set((byte) 15);
+        list.add(0, (byte) 3);
+        list.remove(2000);
+        list.sortAscending();
+        List<Byte> after = new ArrayList<>(list);
+
+        assertEquals("Snapshot changed", before, snapshot);
+        assertEquals("Wrong decimal value of snapshot", decimal, snapshot.toDecimalString());
+        assertEquals("Wrong result of AND with snapshot", snapshot.toDecimalString(),
+                snapshot.additionalOperation(snapshot).toDecimalString());
+        assertEquals("Source changed by snapshot", after, list);
+        assertTrue("Snapshot is not IMMUTABLE", snapshot.spliterator().hasCharacteristics(Spliterator.IMMUTABLE));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotIsReadOnly() {
+        list = new NumberListImpl("4660");
+        list.snapshot().set(0, (byte) 1);
+    }
+
+    @Test
+    public void testSubListWritesThrough() {
+        list = new NumberListImpl();
+        List<Byte> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            list.add((byte) (i % 16));
+            expected.add((byte) (i % 16));
+        }
+        list.rotate(2500);
+        Collections.rotate(expected, 2500);
+
+        List<Byte> view = list.subList(1000, 4000);
+        view.set(0, (byte) 15);
+        view.add(1, (byte) 14);
+        view.remove(2);
+        view.subList(100, 2900).clear();
+        List<Byte> expectedView = expected.subList(1000, 4000);
+        expectedView.set(0, (byte) 15);
+        expectedView.add(1, (byte) 14);
+        expectedView.remove(2);
+        expectedView.subList(100, 2900).clear();
+
+        assertEquals("Wrong sublist", expectedView, view);
+        assertEquals("Wrong content", expected, list);
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testSubListFailsFast() {
+        list = new NumberListImpl("4660");
+        List<Byte> view = list.subList(1, 3);
+        list.add((byte) 1);
+        view.get(0);
+    }
+
+    @Test
+    public void testHashCodeAndEquals() {
+        list = new NumberListImpl();
+        NumberListImpl other = new NumberListImpl();
+        List<Byte> expected = new ArrayList<>();
+        Random random = new Random(19);
+        for (int i = 0; i < 3000; i++) {
+            byte d = (byte) random.nextInt(16);
+            list.add(d);
+            other.add(0, d);
+            expected.add(d);
+        }
+        other.rotate(123);
+        Collections.reverse(other);
+        other.rotate(123);
+
+        assertEquals("Wrong hash code", expected.hashCode(), list.hashCode());
+        assertEquals("Wrong hash code after reverse", expected.hashCode(), other.hashCode());
+        assertEquals("Lists are not equal", list, other);
+        assertTrue("Lists are not equal", list.equals(expected) && expected.equals(list));
+
+        other.set(2999, (byte) ((other.get(2999) + 1) % 16));
+        assertTrue("Lists are equal", !list.equals(other));
+        assertTrue("Wrong hash code after set()", list.hashCode() != other.hashCode());
+        assertEquals("Wrong set size", 2, new HashSet<>(List.of(list, other, list.snapshot())).size());
+    }
+
+    @Test
+    public void testNodePool() {
+        int capacity = NumberListImpl.getNodePoolCapacity();
+        NumberListImpl.setNodePoolCapacity(64);
+        try {
+            list = new NumberListImpl();
+            for (int round = 0; round < 5; round++) {
+                list.clear();
+                for (int i = 0; i < 3000; i++) {
+                    list.add((byte) ((i + round) % 16));
+                }
+                list.subList(100, 1500).clear();
+                list.retainAll(Arrays.asList((byte) 1, (byte) 2, (byte) 3));
+                NumberListImpl other = new NumberListImpl(list.toDecimalString());
+                assertEquals("Wrong digits of a list built from reused nodes", list, other);
+                other.clear();
+            }
+            NumberListImpl snapshot = list.snapshot();
+            List<Byte> before = new ArrayList<>(snapshot);
+            list.clear();
+            NumberListImpl other = new NumberListImpl("123456789".repeat(100));
+            assertEquals("Snapshot nodes were reused", before, snapshot);
+            assertEquals("Wrong digits of a list built from reused nodes", "123456789".repeat(100),
+                    other.toDecimalString());
+        } finally {
+            NumberListImpl.setNodePoolCapacity(capacity);
+        }
+    }
+
+    @Test
+    public void testBinaryDigits() {
+        list = new NumberListImpl("1212144468782345613").changeScale();
+        String binary = list.toString();
+        for (int i = 0; i < 3000; i++) {
+            list.add((byte) (i % 2));
+        }
+
+        assertEquals("Wrong size", binary.length() + 3000, list.size());
+        assertTrue("Wrong content", list.toString().startsWith(binary));
+        assertEquals("Wrong value", Byte.valueOf((byte) 1), list.get(binary.length() + 2999));
+    }
+
+    @Test
+    public void testSort() {
+        list = new NumberListImpl();
+        List<Byte> expected = new ArrayList<>();
+        Random random = new Random(19);
+        for (int i = 0; i < 3000; i++) {
+            byte d = (byte) random.nextInt(16);
+            list.add(d);
+            expected.add(d);
+        }
+
+        list.sortAscending();
+        Collections.sort(expected);
+        assertEquals("Wrong result of sortAscending()", expected, list);
+
+        list.sortDescending();
+        Collections.reverse(expected);
+        assertEquals("Wrong result of sortDescending()", expected, list);
+    }
+
+    @Test
+    public void testSortLargeRotatedList() {
+        list = new NumberListImpl();
+        int[] counts = new int[16];
+        Random random = new Random(1_600_000);
+        for (int i = 0; i < 1_600_000; i++) {
+            byte d = (byte) random.nextInt(16);
+            list.add(d);
+            counts[d]++;
+        }
+        list.rotate(12345);
+        NumberListImpl snapshot = list.snapshot();
+        List<Byte> before = new ArrayList<>(snapshot);
+
+        list.sortAscending();
+        assertSortedRuns(counts, true);
+        list.sortDescending();
+        assertSortedRuns(counts, false);
+        assertEquals("Sorting changed a snapshot", before, snapshot);
+    }
+
+    private void assertSortedRuns(int[] counts, boolean ascending) {
+        assertEquals("Wrong size after sorting", 1_600_000, list.size());
+        int index = 0;
+        for (int k = 0; k < 16; k++) {
+            int digit = ascending ? k : 15 - k;
+            for (int i = 0; i < counts[digit]; i++, index++) {
+                assertEquals("Wrong digit at " + index, digit, (int) list.get(index));
+            }
+        }
+    }
+}
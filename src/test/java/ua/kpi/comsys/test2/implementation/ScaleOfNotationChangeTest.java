@@ -115,4 +115,29 @@ public class ScaleOfNotationChangeTest {
         assertEquals("Invalid result of changeScale() ", BINARY, actual.toString());
 
     }
+
+    @Test
+    public void testFromBinary() {
+        assumeTrue(NumberListImpl.getRecordBookNumber() % 5  == 4);
+
+        NumberListImpl binary = list.changeScale();
+        binary.add(0, (byte) 0);
+        binary.add(0, (byte) 0);
+        actual = binary.changeScale();
+
+        assertNotNull("Result is null while it shouldn't!", actual);
+        assertEquals("Invalid result of changeScale() ", HEXADECIMAL, actual.toString());
+        assertEquals("Invalid result of toDecimalString() ", DECIMAL, actual.toDecimalString());
+    }
+
+    @Test
+    public void testZero() {
+        assumeTrue(NumberListImpl.getRecordBookNumber() % 5  == 4);
+
+        actual = new NumberListImpl("0").changeScale();
+        assertEquals("Invalid result of changeScale() ", "0", actual.toString());
+
+        actual = actual.changeScale();
+        assertEquals("Invalid result of changeScale() ", "0", actual.toString());
+    }
 }
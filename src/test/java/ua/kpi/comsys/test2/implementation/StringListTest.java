@@ -7,11 +7,16 @@
 
 package ua.kpi.comsys.test2.implementation;
 
+import java.math.BigInteger;
+import java.util.Random;
+
 import org.junit.After;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -71,5 +76,44 @@ public class StringListTest {
         assertTrue("List should be empty!", list1.isEmpty());
     }
 
+    @Test
+    public void testCachedValuesFollowChanges() {
+        list1 = new NumberListImpl("4660");
+        assertSame("Decimal value is not cached", list1.toDecimalString(), list1.toDecimalString());
+        assertSame("Text is not cached", list1.toString(), list1.toString());
+
+        list1.set(0, (byte) 15);
+        assertEquals("Wrong value after set()", "62004", list1.toDecimalString());
+        list1.shiftLeft();
+        assertEquals("Wrong text after shiftLeft()", "234F", list1.toString());
+        list1.sortDescending();
+        assertEquals("Wrong value after sortDescending()", "62514", list1.toDecimalString());
+
+        int limit = NumberListImpl.getCacheLimit();
+        NumberListImpl.setCacheLimit(0);
+        try {
+            list2 = new NumberListImpl("4660");
+            assertNotSame("Cache is not disabled", list2.toString(), list2.toString());
+        } finally {
+            NumberListImpl.setCacheLimit(limit);
+        }
+    }
 
+    @Test
+    public void testParallelConversion() {
+        BigInteger number = new BigInteger(60000, new Random(19));
+        String value = number.toString();
+        int threshold = DecimalConversion.parallelThreshold;
+        DecimalConversion.parallelThreshold = 50;
+        try {
+            list1 = new NumberListImpl(value);
+            assertEquals("Wrong digits", number.toString(16).toUpperCase(), list1.toString());
+            assertEquals("Wrong value", value, list1.toDecimalString());
+
+            list2 = new NumberListImpl("12 34");
+            assertTrue("List should be empty!", list2.isEmpty());
+        } finally {
+            DecimalConversion.parallelThreshold = threshold;
+        }
+    }
 }